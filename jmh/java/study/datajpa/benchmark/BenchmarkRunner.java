@@ -0,0 +1,55 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 벤치마크 실행
+ *
+ * java -cp {jmh classpath} study.datajpa.benchmark.BenchmarkRunner [벤치마크 이름 정규식]
+ *
+ * - GC 프로파일러를 항상 켠다. (gc.alloc.rate.norm = 호출당 할당 바이트)
+ * - 결과는 build/reports/jmh/{커밋}.json 으로 남긴다. 커밋은 -Dbench.commit=$(git rev-parse --short HEAD) 로 넘긴다.
+ *   같은 시드 데이터, 같은 반복 설정으로 돌리므로 커밋별 JSON 파일끼리 비교하면 된다.
+ * - -Dbench.threads=1,4,16 처럼 넘기면 스레드 수마다 한 번씩 실행하고 {커밋}-t{스레드 수}.json 으로 남긴다.
+ *   (@Threads 설정보다 우선, 스레드 수에 따른 처리량/꼬리 지연 변화를 볼 때 사용)
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : MemberFetchStrategyBenchmark.class.getSimpleName();
+        String commit = System.getProperty("bench.commit", "local");
+
+        File resultDir = new File("build/reports/jmh");
+        resultDir.mkdirs();
+
+        String threads = System.getProperty("bench.threads");
+        if (threads == null) {
+            run(include, new File(resultDir, commit + ".json"), 0);
+            return;
+        }
+        for (String count : threads.split(",")) {
+            int threadCount = Integer.parseInt(count.trim());
+            run(include, new File(resultDir, commit + "-t" + threadCount + ".json"), threadCount);
+        }
+    }
+
+    // threads가 0이면 벤치마크 클래스의 @Threads를 따른다.
+    private static void run(String include, File result, int threads) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath());
+        if (threads > 0) {
+            options.threads(threads);
+        }
+        new Runner(options.build()).run();
+    }
+}
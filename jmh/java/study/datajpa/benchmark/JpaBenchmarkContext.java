@@ -0,0 +1,95 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ *
+ * - 웹 서버 없이 JPA 계층만 띄우고, 매 실행마다 새로 만든 인메모리 H2를 사용한다.
+ * - 2차 캐시, 쿼리 캐시는 끈다. (캐시 hit 여부가 아니라 fetch 전략 자체를 비교하기 위해)
+ * - 전역 batch fetch size도 끈다. (켜져 있으면 lazyNPlusOne이 N + 1이 아니라 1 + 1이 된다)
+ * - MemberController.init의 회원 100명은 넣지 않는다. 데이터는 seed()로 만든 것만 있다.
+ * - 하이버네이트 통계를 켜서 실행된 SQL 문 수를 센다.
+ * - 시드 데이터는 항상 같은 규칙으로 만들어서 커밋 간 결과를 비교할 수 있게 한다.
+ */
+public class JpaBenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private JpaBenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @param extraProperties 벤치마크별 추가 설정 ("key=value", 같은 key면 기본 설정보다 우선)
+     */
+    public static JpaBenchmarkContext start(String name, String... extraProperties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                        "spring.jpa.properties.hibernate.default_batch_fetch_size=0",
+                        "datajpa.init-members=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn")
+                .properties(extraProperties)
+                .run();
+        return new JpaBenchmarkContext(context);
+    }
+
+    /**
+     * teams개의 팀과 members명의 회원을 만든다.
+     * 회원 i -> username "member{i % 100}", age i % 100, team (i % teams)
+     */
+    public void seed(int members, int teams) {
+        MemberRepository memberRepository = bean(MemberRepository.class);
+        TeamRepository teamRepository = bean(TeamRepository.class);
+        bean(TransactionTemplate.class).executeWithoutResult(status -> {
+            List<Team> teamList = new ArrayList<>();
+            for (int i = 0; i < teams; i++) {
+                teamList.add(new Team("team" + i));
+            }
+            teamRepository.saveAllBatched(teamList, 500);
+
+            List<Member> memberList = new ArrayList<>();
+            for (int i = 0; i < members; i++) {
+                Member member = new Member("member" + (i % 100), i % 100);
+                member.setTeam(teamList.get(i % teams));
+                memberList.add(member);
+            }
+            memberRepository.saveAllBatched(memberList, 500);
+        });
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // 지금까지 실행된 JDBC PreparedStatement 수
+    public long statementCount() {
+        return bean(EntityManagerFactory.class).unwrap(SessionFactory.class)
+                .getStatistics()
+                .getPrepareStatementCount();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,124 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepository fetch 전략 비교
+ *
+ * - fetchJoin          : findMemberFetchJoin()            (JPQL fetch join)
+ * - entityGraphFindAll : findAll()                        (@EntityGraph 오버라이드)
+ * - entityGraphQuery   : findMemberEntityGraph()          (@Query + @EntityGraph)
+ * - entityGraphDerived : findEntityGraphByUsername(...)   (쿼리 메서드 + @EntityGraph)
+ * - lazyNPlusOne       : findMemberCustom() + getTeam().getName()  (LAZY 로딩, N + 1)
+ *
+ * 모든 벤치마크는 "요청 하나"처럼 읽기 전용 트랜잭션 안에서 조회 후 팀 이름까지 읽는다.
+ * 처리량 외에 GC 프로파일러(-prof gc)로 할당률을, sqlStatements / operations 보조 카운터로 호출당 SQL 수를 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)  // SQL 수를 하이버네이트 전역 통계의 차이로 세므로 단일 스레드로 실행한다.
+public class MemberFetchStrategyBenchmark {
+
+    @Param({"1000", "10000"})
+    int members;
+
+    @Param({"10", "100"})
+    int teams;
+
+    JpaBenchmarkContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readOnlyTx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JpaBenchmarkContext.start("fetch-" + members + "-" + teams);
+        context.seed(members, teams);
+        memberRepository = context.bean(MemberRepository.class);
+        readOnlyTx = new TransactionTemplate(context.bean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 호출당 SQL 수 = sqlStatements / operations
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounters {
+        public long sqlStatements;
+        public long operations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sqlStatements = 0;
+            operations = 0;
+        }
+    }
+
+    @Benchmark
+    public void fetchJoin(SqlCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findMemberFetchJoin(), counters, bh);
+    }
+
+    @Benchmark
+    public void entityGraphFindAll(SqlCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findAll(), counters, bh);
+    }
+
+    @Benchmark
+    public void entityGraphQuery(SqlCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findMemberEntityGraph(), counters, bh);
+    }
+
+    @Benchmark
+    public void entityGraphDerived(SqlCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findEntityGraphByUsername("member7"), counters, bh);
+    }
+
+    @Benchmark
+    public void lazyNPlusOne(SqlCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findMemberCustom(), counters, bh);
+    }
+
+    private void run(Supplier<List<Member>> query, SqlCounters counters, Blackhole bh) {
+        long before = context.statementCount();
+        readOnlyTx.executeWithoutResult(status -> {
+            for (Member member : query.get()) {
+                bh.consume(member.getUsername());
+                bh.consume(member.getTeam().getName());
+            }
+        });
+        counters.sqlStatements += context.statementCount() - before;
+        counters.operations++;
+    }
+}
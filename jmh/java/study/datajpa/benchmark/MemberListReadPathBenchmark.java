@@ -0,0 +1,105 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 회원 목록 조회 방식 비교
+ *
+ * - entity     : findAll(pageable).map(MemberDto::new)  (엔티티 + 스냅샷을 영속성 컨텍스트에 올린 뒤 DTO로 변환)
+ * - projection : findMemberDtoPage(pageable)            (필요한 컬럼만 DTO로 바로 조회)
+ *
+ * 요청 하나 = 읽기 전용 트랜잭션 하나로 보고 호출당 평균 시간을 잰다.
+ * 할당량은 GC 프로파일러(-prof gc)로, 영속성 컨텍스트에 올라간 엔티티 수는 managedEntities / operations 보조 카운터로 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberListReadPathBenchmark {
+
+    @Param({"200"})
+    int pageSize;
+
+    JpaBenchmarkContext context;
+    MemberRepository memberRepository;
+    EntityManager em;
+    TransactionTemplate readOnlyTx;
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JpaBenchmarkContext.start("read-path-" + pageSize);
+        context.seed(2_000, 10);
+        memberRepository = context.bean(MemberRepository.class);
+        em = context.bean(EntityManager.class);     // 트랜잭션에 묶인 공유 EntityManager
+        readOnlyTx = new TransactionTemplate(context.bean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTx.setReadOnly(true);
+        pageRequest = PageRequest.of(0, pageSize, Sort.by("username"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 호출당 영속성 컨텍스트 엔티티 수 = managedEntities / operations
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ContextCounters {
+        public long managedEntities;
+        public long operations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            managedEntities = 0;
+            operations = 0;
+        }
+    }
+
+    @Benchmark
+    public void entity(ContextCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findAll(pageRequest).map(MemberDto::new), counters, bh);
+    }
+
+    @Benchmark
+    public void projection(ContextCounters counters, Blackhole bh) {
+        run(() -> memberRepository.findMemberDtoPage(pageRequest), counters, bh);
+    }
+
+    private void run(Supplier<Page<MemberDto>> readPath, ContextCounters counters, Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status -> {
+            bh.consume(readPath.get());
+            counters.managedEntities += em.unwrap(Session.class).getStatistics().getEntityCount();
+        });
+        counters.operations++;
+    }
+}
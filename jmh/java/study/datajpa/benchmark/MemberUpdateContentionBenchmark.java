@@ -0,0 +1,114 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.OptimisticLockRetry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 회원을 동시에 바꿀 때 비관적 락 vs 낙관적 락 + 재시도
+ *
+ * - pessimistic : findLockByUsername (select ... for update) -> age + 1 -> 커밋
+ * - optimistic  : OptimisticLockRetry 안에서 findListByUsername (락 X) -> age + 1 -> 커밋 (version 충돌 시 재시도)
+ *
+ * 작업 하나 = 트랜잭션 하나, hotMembers명 중 임의의 회원 하나를 바꾼다. (1 = 모든 스레드가 같은 회원)
+ * Throughput과 SampleTime(p50/p90/p99/p99.9) 둘 다 측정한다.
+ * optimistic은 트랜잭션 시도 수(attempts)와 version 충돌 수(conflicts)를 보조 지표로 같이 출력한다. (RetryCounters)
+ * 스레드 수에 따른 변화는 -Dbench.threads=1,2,4,8,16 으로 실행한다. (BenchmarkRunner 참고)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MemberUpdateContentionBenchmark {
+
+    @Param({"1", "16"})
+    int hotMembers;
+
+    JpaBenchmarkContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate tx;
+    OptimisticLockRetry retry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JpaBenchmarkContext.start("contention-" + hotMembers,
+                "spring.datasource.url=jdbc:h2:mem:contention-" + hotMembers + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                "datajpa.optimistic-retry.max-attempts=1000");  // 측정 중 재시도 소진으로 벤치마크가 중단되지 않도록
+        context.seed(hotMembers, 1);
+        memberRepository = context.bean(MemberRepository.class);
+        tx = context.bean(TransactionTemplate.class);
+        retry = context.bean(OptimisticLockRetry.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 스레드별로 세고 JMH가 합쳐서 결과에 보여준다. (OptimisticLockRetry의 전역 카운터는 스레드별로 나눌 수 없다)
+     * 작업 하나는 시도 1번 + 충돌 수만큼의 재시도
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetryCounters {
+        public long attempts;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            attempts = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public int pessimistic() {
+        String username = hotUsername();
+        return tx.execute(status -> increment(memberRepository.findLockByUsername(username).get(0)));
+    }
+
+    @Benchmark
+    public int optimistic(RetryCounters counters) {
+        String username = hotUsername();
+        long before = counters.attempts;
+        int age = retry.execute(status -> {
+            counters.attempts++;
+            return increment(memberRepository.findListByUsername(username).get(0));
+        });
+        counters.conflicts += counters.attempts - before - 1;
+        return age;
+    }
+
+    // JpaBenchmarkContext.seed 규칙 : 회원 i의 username은 "member{i % 100}"
+    private String hotUsername() {
+        return "member" + ThreadLocalRandom.current().nextInt(hotMembers);
+    }
+
+    private static int increment(Member member) {
+        member.setAge(member.getAge() + 1);
+        return member.getAge();
+    }
+}
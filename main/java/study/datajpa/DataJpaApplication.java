@@ -3,13 +3,15 @@ package study.datajpa;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
-@EnableJpaAuditing	// 스프링 데이터 Jpa의 Auditing 기능 사용하기 위해 선언
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")	// 스프링 데이터 Jpa의 Auditing 기능 사용하기 위해 선언
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -29,4 +31,11 @@ public class DataJpaApplication {
 		// 실무에서는 Spring Security 등을 활용해 세션 정보를 가져와 ID를 꺼내야 한다.
 		return () -> Optional.of(UUID.randomUUID().toString());
 	}
+
+	// 등록일, 수정일에 쓰는 시각 (기본값과 같은 애플리케이션 시각)
+	// 벌크 연산도 lastModifiedDate를 이 시계로 넣는다. (DB의 current_timestamp는 시간대/시계가 다를 수 있다)
+	@Bean
+	public DateTimeProvider auditingDateTimeProvider() {
+		return () -> Optional.of(LocalDateTime.now());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package study.datajpa.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 애플리케이션 메모리(JVM 힙)를 쓰는 하이버네이트 2차 캐시 RegionFactory
+ *
+ * 하이버네이트 2차 캐시는 RegionFactory 구현체(Ehcache, JCache 등)가 있어야 동작한다.
+ * 여기서는 별도 캐시 라이브러리 없이 region별로 크기(LRU), ttl을 설정할 수 있는 간단한 구현을 사용한다.
+ *
+ * region 설정 (spring.jpa.properties 아래)
+ * - hibernate.cache.local.{region}.max-entries, hibernate.cache.local.{region}.ttl-seconds
+ * - region 설정이 없으면 hibernate.cache.local.default.* 를 사용한다.
+ *
+ * 엔티티 저장/수정/삭제는 하이버네이트가 캐시를 같이 갱신하고,
+ * bulkAgePlus 같은 JPQL 벌크 연산은 하이버네이트가 대상 엔티티 region 전체를 비운다. (BulkOperationCleanupAction)
+ * update timestamps region은 쿼리 캐시 정합성에 쓰이므로 크기 제한, ttl을 두지 않는다.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    static final String PREFIX = "hibernate.cache.local.";
+    private static final int TIMESTAMP_SHIFT = 12;  // 1ms 당 4096개
+
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    private final Map<String, LocalStorageAccess> regions = new ConcurrentHashMap<>();
+    private Map<?, ?> configValues = Collections.emptyMap();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        this.configValues = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(LocalStorageAccess::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return createStorage(regionConfig.getRegionName(), true);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, true);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, false);
+    }
+
+    /**
+     * 쿼리 캐시 결과와 update timestamps를 비교할 때 쓰는 시각 (하이버네이트 SimpleTimestamper와 같은 방식)
+     * 밀리초를 TIMESTAMP_SHIFT 비트만큼 밀고 아래 비트를 카운터로 써서, 같은 밀리초 안에서도 항상 증가하고 시계가 뒤로 가도 줄지 않는다.
+     * (같은 밀리초에 무효화와 결과 저장이 일어나도 결과가 최신으로 보이지 않도록)
+     */
+    @Override
+    public long nextTimestamp() {
+        while (true) {
+            long last = lastTimestamp.get();
+            long now = System.currentTimeMillis() << TIMESTAMP_SHIFT;
+            long next = now > last ? now : last + 1;
+            if (lastTimestamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    // preInvalidate 후 invalidate 되지 않은 timestamp가 유효한 시간 - nextTimestamp와 같은 단위
+    @Override
+    public long getTimeout() {
+        return TimeUnit.SECONDS.toMillis(60) << TIMESTAMP_SHIFT;
+    }
+
+    public Collection<LocalStorageAccess> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    private LocalStorageAccess createStorage(String regionName, boolean bounded) {
+        int maxEntries = bounded ? intSetting(regionName, "max-entries", 10_000) : 0;
+        long ttlSeconds = bounded ? intSetting(regionName, "ttl-seconds", 0) : 0;
+        return regions.computeIfAbsent(regionName, name -> new LocalStorageAccess(name, maxEntries, ttlSeconds));
+    }
+
+    private int intSetting(String regionName, String key, int defaultValue) {
+        Object value = configValues.get(PREFIX + regionName + "." + key);
+        if (value == null) {
+            value = configValues.get(PREFIX + "default." + key);
+        }
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+}
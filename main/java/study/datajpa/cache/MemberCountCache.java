@@ -0,0 +1,206 @@
+package study.datajpa.cache;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 count 쿼리 결과 캐시
+ *
+ * 페이징에서 가장 무거운 것은 count 쿼리다. (MemberRepository.findByAge 주석 참고)
+ * 같은 조건의 count를 매 페이지 요청마다 다시 셀 필요는 없으므로 (쿼리 + 파라미터)를 key로 결과를 캐시한다.
+ *
+ * - EXACT(기본) : Member에 쓰기(save, delete, 변경감지 update, 벌크 연산)가 일어나면 캐시를 전부 비운다.
+ * - ESTIMATED  : 정확한 값 대신 근사치를 허용한다.
+ *                insert/delete 시 조건 없는 count는 +1/-1 로 보정하고, 조건이 있는 count는 ttl 동안 그대로 사용한다.
+ *                (Page의 totalElements가 조금 틀려도 괜찮은 목록 화면용)
+ */
+@Component
+public class MemberCountCache {
+
+    public enum Mode { EXACT, ESTIMATED }
+
+    private final Map<CountKey, CachedCount> cache = new ConcurrentHashMap<>();
+
+    private final Mode mode;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public MemberCountCache(@Value("${datajpa.count-cache.mode:exact}") String mode,
+                            @Value("${datajpa.count-cache.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${datajpa.count-cache.max-entries:10000}") int maxEntries) {
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param query  count 쿼리 (캐시 key)
+     * @param params 쿼리 파라미터 (캐시 key), 조건이 없으면 빈 Map
+     * @param loader 캐시에 없을 때 실제 count 쿼리를 실행하는 부분
+     */
+    public long count(String query, Map<String, ?> params, LongSupplier loader) {
+        CountKey key = new CountKey(query, params);
+        CachedCount cached = cache.get(key);
+        if (cached != null && !cached.isExpired(ttlNanos)) {
+            return cached.value;
+        }
+
+        long value = loader.getAsLong();
+        if (cache.size() >= maxEntries) {
+            cache.clear();  // 파라미터 조합이 폭발하는 경우를 막기 위한 안전장치
+        }
+        cache.put(key, new CachedCount(value));
+        return value;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 회원이 추가(+1) 또는 삭제(-1) 되었을 때
+     */
+    public void rowCountChanged(int delta) {
+        if (mode == Mode.EXACT) {
+            invalidateAll();
+            return;
+        }
+        PendingChanges pending = pendingChanges();
+        if (pending == null) {
+            applyDelta(delta);
+            return;
+        }
+        pending.delta += delta;  // 롤백되면 보정하지 않는다.
+    }
+
+    /**
+     * 회원 정보가 바뀌어서 (row 수는 그대로) 조건이 있는 count가 달라질 수 있을 때
+     */
+    public void rowsUpdated() {
+        if (mode == Mode.EXACT) {
+            invalidateAll();
+        }
+        // ESTIMATED 모드에서는 ttl이 지나면 다시 센다.
+    }
+
+    /**
+     * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로 row 단위 이벤트가 없다. 모드와 상관없이 조건이 있는 count는 비운다.
+     */
+    public void bulkUpdated() {
+        if (mode == Mode.EXACT) {
+            invalidateAll();
+            return;
+        }
+        removeFiltered();
+        PendingChanges pending = pendingChanges();
+        if (pending != null) {
+            pending.removeFiltered = true;
+        }
+    }
+
+    public void invalidateAll() {
+        // 지금 비우고, 트랜잭션이 끝난 뒤에 한 번 더 비운다.
+        // (커밋 전에 다른 트랜잭션이 예전 값으로 캐시를 다시 채웠을 수 있으므로)
+        cache.clear();
+        PendingChanges pending = pendingChanges();
+        if (pending != null) {
+            pending.invalidate = true;
+        }
+    }
+
+    private void applyDelta(long delta) {
+        cache.replaceAll((key, cached) ->
+                key.params.isEmpty() ? new CachedCount(Math.max(0, cached.value + delta), cached.loadedAt) : cached);
+    }
+
+    private void removeFiltered() {
+        cache.keySet().removeIf(key -> !key.params.isEmpty());
+    }
+
+    /**
+     * 현재 트랜잭션의 변경 내역 (트랜잭션 밖이면 null)
+     * 엔티티 리스너는 insert/delete 한 건마다 호출되므로 synchronization은 트랜잭션당 하나만 등록하고 변경 내역을 거기에 모은다.
+     * (N건을 저장해도 커밋 시점에 clear / replaceAll 은 한 번, saveAllBatched의 메모리 사용량도 일정하다)
+     */
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private long delta;
+        private boolean invalidate;
+        private boolean removeFiltered;
+
+        // REQUIRES_NEW로 바깥 트랜잭션이 보류되면 그 변경 내역도 함께 내려둔다.
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemberCountCache.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemberCountCache.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+            if (invalidate) {
+                cache.clear();
+                return;
+            }
+            if (removeFiltered) {
+                removeFiltered();
+            }
+            if (delta != 0 && status == STATUS_COMMITTED) {
+                applyDelta(delta);
+            }
+        }
+    }
+
+    @EqualsAndHashCode
+    private static class CountKey {
+        private final String query;
+        private final Map<String, ?> params;
+
+        CountKey(String query, Map<String, ?> params) {
+            this.query = query;
+            this.params = params;
+        }
+    }
+
+    private static class CachedCount {
+        private final long value;
+        private final long loadedAt;
+
+        CachedCount(long value) {
+            this(value, System.nanoTime());
+        }
+
+        CachedCount(long value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+}
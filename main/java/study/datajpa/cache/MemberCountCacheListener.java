@@ -0,0 +1,41 @@
+package study.datajpa.cache;
+
+import study.datajpa.entity.Member;
+
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+
+/**
+ * Member 엔티티 리스너 - 영속성 컨텍스트를 통한 쓰기가 일어나면 count 캐시를 갱신한다.
+ *
+ * AuditingEntityListener와 마찬가지로 하이버네이트가 스프링 빈 컨테이너를 통해 생성하므로 생성자 주입을 받을 수 있다.
+ * (벌크 연산은 엔티티 이벤트가 발생하지 않으므로 repository 패키지의 MemberCountCacheAspect에서 처리한다.)
+ *
+ * insert, delete는 flush 시점이 아니라 persist, remove 시점(Pre*)에 바로 반영한다.
+ * flush 전에 count를 다시 조회하면 캐시 hit으로 auto flush가 일어나지 않아 예전 값을 돌려주기 때문이다.
+ * 변경감지 update는 flush 시점에야 알 수 있으므로, 같은 트랜잭션에서 flush 전에 조회한 count에는 반영되지 않는다.
+ */
+public class MemberCountCacheListener {
+
+    private final MemberCountCache countCache;
+
+    public MemberCountCacheListener(MemberCountCache countCache) {
+        this.countCache = countCache;
+    }
+
+    @PrePersist
+    public void prePersist(Member member) {
+        countCache.rowCountChanged(1);
+    }
+
+    @PreRemove
+    public void preRemove(Member member) {
+        countCache.rowCountChanged(-1);
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        countCache.rowsUpdated();
+    }
+}
@@ -0,0 +1,38 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.repository.MemberPartitionedScanner;
+
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 회원 집계 (MemberPartitionedScanner로 id 범위를 나눠 병렬로 집계한다)
+ */
+@RestController
+@RequiredArgsConstructor
+public class MemberAnalyticsController {
+
+    private final MemberPartitionedScanner scanner;
+
+    // 나이대별 회원 수 ex. bucket=10 -> {0: 10, 10: 10, ...}
+    @GetMapping("/members/analytics/age-histogram")
+    public Map<Integer, Long> ageHistogram(@RequestParam(value = "bucket", defaultValue = "10") int bucket) {
+        int size = Math.max(1, bucket);
+        return scanner.scan(Collectors.groupingBy(member -> member.getAge() / size * size, TreeMap::new, Collectors.counting()));
+    }
+
+    // 팀별 나이 분포 (count, min, max, average, sum), 팀이 없는 회원은 "-"
+    @GetMapping("/members/analytics/team-ages")
+    public Map<String, IntSummaryStatistics> teamAges() {
+        return scanner.scan(Collectors.groupingBy(
+                member -> member.getTeam() == null ? "-" : member.getTeam().getName(),
+                TreeMap::new,
+                Collectors.summarizingInt(member -> member.getAge())));
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.dto.BulkUpdateProgress;
+import study.datajpa.entity.BulkUpdateJob;
+import study.datajpa.repository.MemberBulkUpdater;
+
+/**
+ * bulkAgePlus의 slice 단위 실행 (MemberBulkUpdater 참고)
+ * 작업은 백그라운드에서 실행되고, 진행 상황은 GET으로 조회한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MemberBulkUpdateController {
+
+    private final MemberBulkUpdater bulkUpdater;
+
+    @PostMapping("/members/bulk-age-plus")
+    public ResponseEntity<BulkUpdateProgress> start(@RequestParam("age") int age,
+                                                    @RequestParam(value = "sliceSize", defaultValue = "${datajpa.bulk-update.slice-size:1000}") int sliceSize,
+                                                    @RequestParam(value = "parallelism", defaultValue = "${datajpa.bulk-update.parallelism:2}") int parallelism) {
+        BulkUpdateJob job;
+        try {
+            job = bulkUpdater.createAgePlusJob(age, sliceSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        bulkUpdater.run(job.getId(), parallelism);
+        return ResponseEntity.accepted().body(progress(job.getId()));
+    }
+
+    @GetMapping("/members/bulk-age-plus/{jobId}")
+    public BulkUpdateProgress progress(@PathVariable("jobId") Long jobId) {
+        try {
+            return bulkUpdater.progress(jobId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    // 실패했거나 서버 재기동으로 중단된 작업을 마지막으로 끝난 slice 이후부터 다시 실행한다.
+    @PostMapping("/members/bulk-age-plus/{jobId}/resume")
+    public ResponseEntity<BulkUpdateProgress> resume(@PathVariable("jobId") Long jobId,
+                                                     @RequestParam(value = "parallelism", defaultValue = "${datajpa.bulk-update.parallelism:2}") int parallelism) {
+        BulkUpdateProgress progress = progress(jobId);
+        if (progress.getStatus() != BulkUpdateJob.Status.COMPLETED) {
+            bulkUpdater.run(jobId, parallelism);
+        }
+        return ResponseEntity.accepted().body(progress(jobId));
+    }
+}
@@ -1,33 +1,80 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSaveRequest;
+import study.datajpa.dto.MemberVersion;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.CoalescingFinder;
+import study.datajpa.repository.KeysetSlice;
+import study.datajpa.repository.MemberCursor;
+import study.datajpa.repository.MemberFetchPlan;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
     private final MemberRepository memberRepository;
+    private final TeamRepository teamRepository;
+    private final ObjectMapper objectMapper;
+    private final CoalescingFinder coalescingFinder;
 
+    @Value("${spring.data.web.pageable.max-page-size:2000}")
+    private int maxPageSize;
+
+    @Value("${datajpa.init-members:true}")
+    private boolean initMembers;
+
+    /**
+     * 인기 있는 id로 동시에 들어온 요청은 조회 한 번을 나눠 쓴다. (CoalescingFinder 참고)
+     *
+     * 조건부 GET - 합쳐진 조회 결과의 version으로 ETag를 만들고, If-None-Match / If-Modified-Since와 같으면 본문 없이 304로 응답한다.
+     * (검증용 조회를 따로 하지 않으므로 인기 있는 id도 요청마다 쿼리가 하나씩 늘지 않는다)
+     */
     @GetMapping("/members/{id}")
-    public String findMember(@PathVariable("id") Long id) {
-        Member member = memberRepository.findById(id).get();
-        return member.getUsername();
+    public String findMember(@PathVariable("id") Long id, WebRequest webRequest) {
+        Member member = coalescingFinder.findMember(id).get();
+        LocalDateTime lastModified = member.getLastModifiedDate();
+        boolean notModified = lastModified != null
+                ? webRequest.checkNotModified(memberEtag(member), epochMillis(lastModified))
+                : webRequest.checkNotModified(memberEtag(member));
+        return notModified ? null : member.getUsername();
     }
 
     /**
      * 도메인 클래스 컨버터를 활용한 부분 (권장 X)
+     * String -> Member 변환은 WebConfig에 등록한 컨버터가 CoalescingFinder로 처리한다.
      */
     @GetMapping("/members2/{id}")
     public String findMember2(@PathVariable("id") Member member) {
@@ -36,7 +83,9 @@ public class MemberController {
 
     // @PageableDefault - 특별한 페이징 설정 (글로벌 설정보다 우선한다)
     @GetMapping("/members")
-    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username")  Pageable pageable) {
+    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username")  Pageable pageable,
+                                @RequestParam(value = "expand", required = false) String expand,
+                                WebRequest webRequest) {
         // 리팩토링 v0 - 고전 방식
         /* Page<Member> page = memberRepository.findAll(pageable); // 이런 방식으로 넘기면 곤란하다. Member 엔티티를 외부에 노출하는 꼴. 스펙 변경에도 취약.
         Page<MemberDto> map = page.map(member -> new MemberDto(member.getId(), member.getUsername(), null));
@@ -51,18 +100,121 @@ public class MemberController {
                 map(member -> new MemberDto(member));*/
 
         // 리팩토링 v3 - Method Reference
-        return memberRepository.findAll(pageable).map(MemberDto::new);
+        /*return memberRepository.findAll(pageable).map(MemberDto::new);*/
+
+        // ?expand=team - 팀 정보가 필요한 클라이언트만 join 비용을 낸다. (MemberFetchPlan 참고)
+        MemberFetchPlan plan;
+        try {
+            plan = MemberFetchPlan.parse(expand);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        if (webRequest.checkNotModified(listEtag(pageable, plan))) {
+            return null;    // 304
+        }
+
+        if (!plan.isEmpty()) {
+            return memberRepository.findAllWithPlan(plan, pageable)
+                    .map(member -> new MemberDto(member.getId(), member.getUsername(),
+                            member.getTeam() == null ? null : member.getTeam().getName()));
+        }
+
+        // 리팩토링 v4 - 엔티티를 거치지 않고 DTO로 바로 조회 (필요한 컬럼만 select, 영속성 컨텍스트 X)
+        return memberRepository.findMemberDtoPage(pageable);
+    }
+
+    /**
+     * 목록 ETag - 페이지에 들어갈 회원의 (id, 수정 시각, 팀 수정 시각)과 전체 회원 수로 만든다.
+     * 본문 대신 이 값들만 조회하므로 바뀐 것이 없으면 응답이 훨씬 싸다. (전체 회원 수는 MemberCountCache 값)
+     * 삭제된 회원은 수정 시각의 최댓값으로 알 수 없으므로 목록에는 Last-Modified를 쓰지 않고 ETag만 쓴다.
+     */
+    private String listEtag(Pageable pageable, MemberFetchPlan plan) {
+        StringBuilder version = new StringBuilder()
+                .append(pageable).append('|').append(plan).append('|').append(memberRepository.countCached());
+        for (MemberVersion member : memberRepository.findVersions(pageable)) {
+            version.append('|').append(member.getId())
+                    .append(':').append(member.getLastModifiedDate())
+                    .append(':').append(member.getTeamUpdatedDate());
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // 변경 감지, 벌크 연산 모두 version을 올리므로 같은 밀리초 안의 두 변경도 ETag가 다르다. (수정 시각으로 만들면 304가 잘못 나갈 수 있다)
+    private static String memberEtag(Member member) {
+        return "\"" + member.getId() + "-" + member.getVersion() + "\"";
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Keyset(Seek) 페이징 - offset을 쓰지 않으므로 아무리 뒤 페이지로 가도 응답 속도가 일정하다.
+     *
+     * 첫 요청: /members/keyset?sort=username&direction=asc&size=5
+     * 다음 요청: /members/keyset?cursor={응답의 next}&size=5  (정렬 조건은 cursor 안에 들어 있다)
+     * age를 넘기면 findByAge의 keyset 버전으로 동작한다.
+     */
+    @GetMapping("/members/keyset")
+    public KeysetSlice<MemberDto> keysetList(@RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "sort", defaultValue = "username") String sort,
+                                             @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                             @RequestParam(value = "age", required = false) Integer age,
+                                             @RequestParam(value = "size", defaultValue = "5") int size) {
+        MemberCursor memberCursor;
+        try {
+            memberCursor = cursor != null
+                    ? MemberCursor.decode(cursor)
+                    : MemberCursor.first(MemberCursor.SortKey.fromProperty(sort), Sort.Direction.fromString(direction));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        KeysetSlice<Member> slice = age != null
+                ? memberRepository.findByAgeKeyset(age, memberCursor, pageSize)
+                : memberRepository.findAllByKeyset(memberCursor, pageSize);
+        // 팀 프록시는 첫 getName() 시점에 이 페이지의 팀들을 in 절 한 번으로 모아서 가져온다. (default_batch_fetch_size)
+        return slice.map(member -> new MemberDto(member.getId(), member.getUsername(),
+                member.getTeam() == null ? null : member.getTeam().getName()));
+    }
+
+    /**
+     * 회원 대량 등록
+     *
+     * body: [{"username":"user1","age":10,"teamId":1}, ...] 형태의 JSON 배열 또는 한 줄에 하나씩인 NDJSON
+     * - body 전체를 List로 받지 않고 한 건씩 파싱하면서 저장하므로 수십만 건이어도 메모리를 적게 쓴다.
+     * - batchSize 건마다 JDBC batch insert + 영속성 컨텍스트 clear (BatchInsertSupport 참고)
+     */
+    @PostMapping("/members/bulk")
+    public int bulkSave(InputStream body,
+                        @RequestParam(value = "batchSize", defaultValue = "${datajpa.bulk.batch-size:500}") int batchSize) throws IOException {
+        try (MappingIterator<MemberSaveRequest> requests = objectMapper.readerFor(MemberSaveRequest.class).readValues(body)) {
+            // 변환은 saveAllBatched 트랜잭션 안에서 순회할 때 일어나므로 getById 프록시도 그 영속성 컨텍스트에서 만들어진다.
+            Iterable<Member> members = () -> StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(requests, Spliterator.ORDERED), false)
+                    .map(request -> request.toEntity(teamRepository::getById))
+                    .iterator();
+            return memberRepository.saveAllBatched(members, batchSize);
+        }
     }
 
     /**
      * @PostConstruct : Spring Application이 올라올 때 실행된다.
+     * datajpa.init-members: false 면 넣지 않는다. (벤치마크처럼 데이터를 직접 만드는 경우)
      */
     @PostConstruct
     public void init() {
+        if (!initMembers) {
+            return;
+        }
 //        memberRepository.save(new Member("userA")); // 데이터를 1개 넣는 부분
 
+        // save()를 100번 호출하면 insert마다 트랜잭션과 쿼리가 따로 나간다. -> 한 트랜잭션에서 batch insert
+        List<Member> members = new ArrayList<>();
         for(int i = 0; i < 100; i++) {
-            memberRepository.save(new Member("user" + i, i));
+            members.add(new Member("user" + i, i));
         }
+        memberRepository.saveAllBatched(members, 100);
     }
 }
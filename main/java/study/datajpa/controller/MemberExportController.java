@@ -0,0 +1,132 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 전체 회원 내보내기 (NDJSON / CSV)
+ *
+ * findAll()처럼 getResultList()로 전체를 메모리에 올리지 않고,
+ * DB 커서에서 fetchSize 만큼씩 읽어서 바로 응답으로 흘려보낸다.
+ * 회원이 수백만 명이어도 힙 사용량은 일정하고, 첫 번째 row는 조회되자마자 클라이언트에 도착한다.
+ */
+@RestController
+public class MemberExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public MemberExportController(MemberRepository memberRepository,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${datajpa.export.fetch-size:500}") int fetchSize) {
+        this.memberRepository = memberRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @GetMapping("/members/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        boolean csv;
+        if ("csv".equalsIgnoreCase(format)) {
+            csv = true;
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            csv = false;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported format: " + format);
+        }
+
+        // StreamingResponseBody는 컨트롤러가 반환된 뒤 별도 스레드에서 실행되므로 트랜잭션도 그 안에서 연다.
+        StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<MemberDto> stream = memberRepository.streamMemberDto(fetchSize)) {
+                if (csv) {
+                    writeCsv(stream.iterator(), out);
+                } else {
+                    writeNdjson(stream.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=members." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
+    private void writeNdjson(Iterator<MemberDto> rows, OutputStream out) throws IOException {
+        SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+        long count = 0;
+        while (rows.hasNext()) {
+            writer.write(rows.next());
+            flushIfNeeded(writer::flush, ++count);
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Iterator<MemberDto> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,username,teamName\n");
+        long count = 0;
+        while (rows.hasNext()) {
+            MemberDto dto = rows.next();
+            writer.write(dto.getId() + "," + csvValue(dto.getUsername()) + "," + csvValue(dto.getTeamName()) + "\n");
+            flushIfNeeded(writer::flush, ++count);
+        }
+        writer.flush();
+    }
+
+    // 첫 row는 바로 내보내고, 이후에는 fetchSize 단위로 내보낸다.
+    private void flushIfNeeded(IoAction flush, long count) throws IOException {
+        if (count == 1 || count % fetchSize == 0) {
+            flush.run();
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
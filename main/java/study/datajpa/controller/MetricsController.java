@@ -0,0 +1,118 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.cache.LocalRegionFactory;
+import study.datajpa.cache.LocalStorageAccess;
+import study.datajpa.datasource.ReplicaRoutingDataSource;
+import study.datajpa.entity.id.IdAllocatorStats;
+import study.datajpa.metrics.RepositoryMethodMetrics;
+import study.datajpa.metrics.RepositoryMetrics;
+import study.datajpa.repository.CoalescingFinder;
+import study.datajpa.repository.MemberAsyncRepository;
+import study.datajpa.repository.SingleFlight;
+import study.datajpa.sql.IndexAdvice;
+import study.datajpa.sql.IndexAdvisor;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 운영 지표 조회용 컨트롤러
+ */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS = MediaType.parseMediaType("text/plain;version=0.0.4;charset=UTF-8");
+
+    private final EntityManagerFactory emf;
+    private final RepositoryMetrics repositoryMetrics;
+    private final CoalescingFinder coalescingFinder;
+    private final MemberAsyncRepository memberAsyncRepository;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;   // 복제본을 설정하지 않으면 없다.
+    private final IndexAdvisor indexAdvisor;
+
+    // Prometheus scrape 용 (리포지토리 메서드별 지연 시간 히스토그램, row 수, 예외 수)
+    @GetMapping("/metrics")
+    public ResponseEntity<String> prometheus() {
+        return ResponseEntity.ok()
+                .contentType(PROMETHEUS)
+                .body(repositoryMetrics.toPrometheus() + singleFlightPrometheus());
+    }
+
+    // findById 요청 합치기 통계 (전체 + 합쳐진 요청이 많은 id 상위 20개)
+    @GetMapping("/metrics/single-flight")
+    public List<Map<String, Object>> singleFlight() {
+        return coalescingFinder.getFlights().stream()
+                .map(flight -> flight.snapshot(20))
+                .collect(Collectors.toList());
+    }
+
+    private String singleFlightPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP datajpa_single_flight_collapsed_total findById requests that joined an in-flight lookup, top keys.\n");
+        sb.append("# TYPE datajpa_single_flight_collapsed_total counter\n");
+        for (SingleFlight<Long, ?> flight : coalescingFinder.getFlights()) {
+            flight.topKeys(20).forEach((key, stats) ->
+                    sb.append("datajpa_single_flight_collapsed_total{name=\"").append(flight.getName())
+                            .append("\",key=\"").append(key).append("\"} ").append(stats.getCollapsed()).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    // 비동기 조회 실행/대기/거절 수 (MemberAsyncRepository)
+    @GetMapping("/metrics/async")
+    public Map<String, Object> async() {
+        return memberAsyncRepository.getExecutor().snapshot();
+    }
+
+    // primary/복제본별 커넥션 라우팅 수, 복제 지연 (복제본 설정이 없으면 빈 값)
+    @GetMapping("/metrics/datasource")
+    public Map<String, Object> datasource() {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        return routing == null ? Collections.emptyMap() : routing.snapshot();
+    }
+
+    // 기동 시 인덱스 점검 결과 (쿼리별 필요한 인덱스, 있는지/없는지/만들었는지)
+    @GetMapping("/metrics/index-advice")
+    public List<IndexAdvice> indexAdvice() {
+        return indexAdvisor.getAdvice();
+    }
+
+    // 리포지토리 메서드별 호출 수, p50/p95/p99, row 수, 예외 수
+    @GetMapping("/metrics/repositories")
+    public List<Map<String, Object>> repositories() {
+        return repositoryMetrics.all().stream()
+                .map(RepositoryMethodMetrics::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    // 시퀀스별 ID 블록 할당 통계 (할당 수, 블록 리필 수, 리필 대기(경합) 수)
+    @GetMapping("/metrics/id-allocators")
+    public List<Map<String, Object>> idAllocators() {
+        return IdAllocatorStats.all().stream()
+                .map(IdAllocatorStats::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    // 2차 캐시 region별 통계 (크기, hit/miss, put, eviction)
+    @GetMapping("/metrics/cache-regions")
+    public List<Map<String, Object>> cacheRegions() {
+        Object regionFactory = emf.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        if (!(regionFactory instanceof LocalRegionFactory)) {
+            return Collections.emptyList();
+        }
+        return ((LocalRegionFactory) regionFactory).getRegions().stream()
+                .map(LocalStorageAccess::snapshot)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.TeamDto;
+import study.datajpa.dto.TeamOverviewDto;
+import study.datajpa.dto.TeamSaveRequest;
+import study.datajpa.dto.TeamStatsDto;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+import study.datajpa.repository.MemberAsyncRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.TeamStatsRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.StreamSupport;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+    private final ObjectMapper objectMapper;
+    private final TeamStatsRepository teamStatsRepository;
+    private final MemberAsyncRepository memberAsyncRepository;
+
+    /**
+     * 팀 목록 + 각 팀의 회원 (TeamRepositoryCustom.findTeamsWithMembers 참고)
+     * 쿼리 수와 메모리 사용량은 전체 팀/회원 수가 아니라 페이지 크기에 비례한다.
+     */
+    @GetMapping("/teams")
+    public Page<TeamDto> listWithMembers(@PageableDefault(size = 10, sort = "name") Pageable pageable,
+                                         @RequestParam(value = "batchSize", defaultValue = "${datajpa.team-members.batch-size:100}") int batchSize) {
+        return teamRepository.findTeamsWithMembers(pageable, Math.max(1, batchSize))
+                .map(TeamDto::new);
+    }
+
+    /**
+     * 팀 통계 (회원 수, 최소/최대/평균 나이)
+     * Team.members를 로딩하거나 집계 쿼리를 날리지 않고 미리 갱신된 team_stats row 하나를 PK로 조회한다.
+     */
+    @GetMapping("/teams/{id}/stats")
+    public TeamStatsDto stats(@PathVariable("id") Long id) {
+        return teamStatsRepository.findById(id)
+                .map(TeamStatsDto::new)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "no team: " + id));
+    }
+
+    /**
+     * 팀 통계 + 소속 회원 페이지
+     * 두 조회를 동시에 실행하고, 기다리는 동안 요청 스레드는 반납한다. (MemberAsyncRepository 참고)
+     * 조회가 너무 많이 밀려 있으면 커넥션 풀에서 기다리지 않고 바로 503으로 응답한다.
+     */
+    @GetMapping("/teams/{id}/overview")
+    public CompletableFuture<TeamOverviewDto> overview(@PathVariable("id") Long id,
+                                                       @PageableDefault(size = 10, sort = "username") Pageable pageable) {
+        CompletableFuture<Optional<TeamStats>> stats = null;
+        CompletableFuture<Page<MemberDto>> members;
+        try {
+            stats = memberAsyncRepository.findTeamStats(id);
+            members = memberAsyncRepository.findMemberDtoPageByTeamId(id, pageable);
+        } catch (RejectedExecutionException e) {
+            if (stats != null) {
+                stats.cancel(false);    // 먼저 받아들여진 조회는 503 응답과 함께 버린다. (아직 대기 중이면 쿼리를 실행하지 않는다)
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+        return stats.thenCombine(members, (found, page) -> new TeamOverviewDto(
+                found.map(TeamStatsDto::new)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "no team: " + id)),
+                page));
+    }
+
+    /**
+     * 팀 대량 등록 - JSON 배열 또는 NDJSON body를 한 건씩 파싱하면서 batchSize 단위로 insert 한다. (MemberController.bulkSave 참고)
+     */
+    @PostMapping("/teams/bulk")
+    public int bulkSave(InputStream body,
+                        @RequestParam(value = "batchSize", defaultValue = "${datajpa.bulk.batch-size:500}") int batchSize) throws IOException {
+        try (MappingIterator<TeamSaveRequest> requests = objectMapper.readerFor(TeamSaveRequest.class).readValues(body)) {
+            Iterable<Team> teams = () -> StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(requests, Spliterator.ORDERED), false)
+                    .map(TeamSaveRequest::toEntity)
+                    .iterator();
+            return teamRepository.saveAllBatched(teams, batchSize);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.CoalescingFinder;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CoalescingFinder coalescingFinder;
+
+    /**
+     * @PathVariable("id") Member 변환 (MemberController.findMember2)
+     * 스프링 데이터의 도메인 클래스 컨버터(findById) 대신 동시 요청을 합쳐서 조회한다. (String -> Member 전용 컨버터가 우선한다)
+     */
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(new Converter<String, Member>() {
+            @Override
+            public Member convert(String id) {
+                return coalescingFinder.findMember(Long.valueOf(id)).orElse(null);
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.QueryHint;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
+
+/**
+ * 리포지토리 인터페이스에 선언한 쿼리 메서드는 트랜잭션 없이 실행되므로 readOnly 여부로 라우팅할 수 없다.
+ * (SimpleJpaRepository의 @Transactional(readOnly = true)는 findAll, findById 같은 기본 메서드에만 적용된다)
+ *
+ * org.hibernate.readOnly 힌트가 붙은 쿼리 메서드(findReadOnlyByUsername 등)를 트랜잭션 밖에서 호출하면
+ * 읽기 전용 트랜잭션으로 감싸서 복제본에서 읽게 한다. 이미 트랜잭션 안이면 그 트랜잭션을 그대로 따른다.
+ */
+@Aspect
+public class ReadOnlyQueryAspect {
+
+    private final TransactionTemplate readOnlyTx;
+    private final Map<Method, Boolean> readOnlyHinted = new ConcurrentHashMap<>();
+
+    public ReadOnlyQueryAspect(PlatformTransactionManager transactionManager) {
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @Around("this(study.datajpa.repository.MemberRepository) || this(study.datajpa.repository.TeamRepository)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !readOnlyHinted.computeIfAbsent(method, ReadOnlyQueryAspect::hasReadOnlyHint)) {
+            return joinPoint.proceed();
+        }
+        return readOnlyTx.execute(status -> {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        });
+    }
+
+    private static boolean hasReadOnlyHint(Method method) {
+        QueryHints hints = AnnotatedElementUtils.findMergedAnnotation(method, QueryHints.class);
+        if (hints == null) {
+            return false;
+        }
+        for (QueryHint hint : hints.value()) {
+            if (READ_ONLY.equals(hint.name()) && Boolean.parseBoolean(hint.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package study.datajpa.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 자신이 쓴 데이터 읽기(read-your-writes) 보장 범위
+ *
+ * 범위 안에서 쓰기 트랜잭션이 한 번이라도 primary 커넥션을 얻으면, 그 뒤의 읽기 전용 트랜잭션도 primary에서 읽는다.
+ * (복제본은 방금 쓴 내용을 아직 못 받았을 수 있다)
+ * HTTP 요청은 ReadYourWritesFilter가 요청 하나를 범위로 열어준다. 범위 밖에서는 고정하지 않는다.
+ *
+ * try (ReadYourWrites scope = ReadYourWrites.open()) { ... }
+ */
+public final class ReadYourWrites implements AutoCloseable {
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final ReadYourWrites previous;
+    private boolean wrote;
+
+    private ReadYourWrites(ReadYourWrites previous) {
+        this.previous = previous;
+    }
+
+    public static ReadYourWrites open() {
+        ReadYourWrites scope = new ReadYourWrites(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // 이 범위에서 쓰기가 있었으면 true (이후 읽기는 primary)
+    public static boolean isPinnedToPrimary() {
+        ReadYourWrites scope = CURRENT.get();
+        return scope != null && scope.wrote;
+    }
+
+    /**
+     * 다른 스레드에서 실행할 작업이 지금 범위를 이어받게 한다. (비동기 조회가 같은 요청에서 방금 쓴 내용을 읽도록)
+     * 범위 밖에서 호출하면 그대로 반환한다.
+     */
+    public static <T> Supplier<T> inherit(Supplier<T> work) {
+        ReadYourWrites current = CURRENT.get();
+        if (current == null) {
+            return work;
+        }
+        boolean pinned = current.wrote;
+        return () -> {
+            try (ReadYourWrites scope = open()) {
+                scope.wrote = pinned;
+                return work.get();
+            }
+        };
+    }
+
+    static void markWrite() {
+        ReadYourWrites scope = CURRENT.get();
+        if (scope != null) {
+            scope.wrote = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            previous.wrote |= wrote;    // 바깥 범위도 이후 읽기를 primary로
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 read-your-writes 범위로 묶는다. (ReadYourWrites 참고)
+ * POST로 회원을 저장한 요청이 이어서 조회하면 복제 지연과 상관없이 저장한 내용이 보인다.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (ReadYourWrites scope = ReadYourWrites.open()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package study.datajpa.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 복제 지연 측정 (heartbeat 방식)
+ *
+ * primary의 replica_heartbeat 테이블에 현재 시각을 쓰고, 바로 각 복제본에서 그 값을 읽는다.
+ * 복제본이 읽은 값이 지금보다 얼마나 오래됐는지가 곧 복제 지연이다. (DB 종류와 상관없이 쓸 수 있다)
+ * 비교하는 두 시각 모두 이 애플리케이션의 시계이므로 DB 서버 간 시계 차이의 영향을 받지 않는다.
+ *
+ * 지연이 max-lag-ms보다 크거나 복제본에 접속할 수 없으면 그 복제본은 다시 따라잡을 때까지 라우팅에서 빠진다.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String CREATE_TABLE = "create table if not exists replica_heartbeat (id int primary key, beat bigint not null)";
+
+    private final JdbcTemplate primary;
+    private final List<ReplicaRoutingDataSource.Replica> replicas;
+    private final long maxLagMillis;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaLagMonitor(DataSource primary, List<ReplicaRoutingDataSource.Replica> replicas,
+                             long maxLagMillis, long intervalMillis) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = replicas;
+        this.maxLagMillis = maxLagMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        primary.execute(CREATE_TABLE);
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::probe, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public void probe() {
+        long now = System.currentTimeMillis();
+        try {
+            beat(now);
+        } catch (DataAccessException e) {
+            log.warn("replica heartbeat write failed: {}", e.getMessage());
+            return;     // primary에 쓰지 못했으면 지연을 잴 수 없다. (이전 상태 유지)
+        }
+
+        for (ReplicaRoutingDataSource.Replica replica : replicas) {
+            long lag;
+            try {
+                Long beat = new JdbcTemplate(replica.getDataSource())
+                        .queryForObject("select beat from replica_heartbeat where id = 1", Long.class);
+                lag = beat == null ? -1 : Math.max(0, now - beat);
+            } catch (DataAccessException e) {
+                lag = -1;
+            }
+            boolean usable = lag >= 0 && lag <= maxLagMillis;
+            if (replica.update(lag, usable)) {
+                if (usable) {
+                    log.info("replica {} is back in rotation (lag {} ms)", replica.getName(), lag);
+                } else {
+                    log.warn("replica {} removed from rotation (lag {} ms, max {} ms)", replica.getName(), lag, maxLagMillis);
+                }
+            }
+        }
+    }
+
+    private void beat(long now) {
+        if (primary.update("update replica_heartbeat set beat = ? where id = 1", now) == 0) {
+            try {
+                primary.update("insert into replica_heartbeat (id, beat) values (1, ?)", now);
+            } catch (DuplicateKeyException e) {
+                primary.update("update replica_heartbeat set beat = ? where id = 1", now);  // 다른 노드가 먼저 insert
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.datajpa.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * datajpa.datasource.* - 읽기 전용 복제본 설정
+ * 복제본 목록은 @Value로 받을 수 없어서 이 설정만 @ConfigurationProperties로 바인딩한다.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "datajpa.datasource")
+public class ReplicaProperties {
+
+    private List<Node> replicas = new ArrayList<>();
+    private long maxLagMs = 2000;           // 복제 지연이 이보다 큰 복제본으로는 보내지 않는다.
+    private long lagProbeIntervalMs = 500;  // 0 이면 주기적으로 측정하지 않는다. (ReplicaLagMonitor.probe()를 직접 호출)
+
+    @Getter @Setter
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;     // 없으면 spring.datasource.driver-class-name
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,94 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기/쓰기 DataSource 분리 - datajpa.datasource.replicas를 지정했을 때만 켜진다.
+ *
+ * dataSource(@Primary) = LazyConnectionDataSourceProxy -> ReplicaRoutingDataSource -> primary / replica-0, replica-1, ...
+ * - 커넥션은 첫 SQL 실행 시점에 얻으므로 그때는 이미 트랜잭션의 readOnly 여부가 정해져 있다.
+ * - OSIV 때문에 영속성 컨텍스트가 요청 내내 커넥션을 잡고 있으면 처음 고른 DataSource가 다음 트랜잭션까지 이어진다.
+ *   (복제본 커넥션으로 쓰기 트랜잭션이 실행될 수 있다) 그래서 트랜잭션이 끝날 때마다 커넥션을 반납하게 한다.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(prefix = "datajpa.datasource", name = "replicas[0].url")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties primaryProperties,
+                                                             ReplicaProperties properties) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (ReplicaProperties.Node node : properties.getReplicas()) {
+            String name = "replica-" + replicas.size();
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(node.getDriverClassName() != null ? node.getDriverClassName() : primaryProperties.determineDriverClassName())
+                    .url(node.getUrl())
+                    .username(node.getUsername())
+                    .password(node.getPassword())
+                    .build();
+            dataSource.setPoolName(name);
+            dataSource.setMaximumPoolSize(node.getMaximumPoolSize());
+            dataSource.setReadOnly(true);   // 실수로 복제본에 쓰지 않도록 (드라이버가 지원하면 거부된다)
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, dataSource));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource,
+                                               ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               ReplicaProperties properties) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaRoutingDataSource.getReplicas(),
+                properties.getMaxLagMs(), properties.getLagProbeIntervalMs());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadOnlyQueryAspect readOnlyQueryAspect(PlatformTransactionManager transactionManager) {
+        return new ReadOnlyQueryAspect(transactionManager);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+}
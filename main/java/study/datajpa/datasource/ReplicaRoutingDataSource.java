@@ -0,0 +1,140 @@
+package study.datajpa.datasource;
+
+import lombok.Getter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 읽기 전용 트랜잭션은 복제본으로, 나머지는 primary로 보낸다.
+ *
+ * - 커넥션을 얻는 시점의 트랜잭션 readOnly 여부로 고른다. 그래서 반드시 LazyConnectionDataSourceProxy로 감싸서
+ *   트랜잭션 시작(readOnly 설정)이 끝난 뒤 첫 SQL 실행 시점에 커넥션을 얻게 해야 한다. (ReplicaRoutingConfig 참고)
+ * - 쓰기 트랜잭션에 참여한 읽기(@Transactional 안에서 호출한 조회)는 readOnly가 아니므로 primary로 간다.
+ * - 복제 지연이 max-lag-ms를 넘었거나 응답이 없는 복제본은 건너뛰고, 쓸 수 있는 복제본이 없으면 primary에서 읽는다.
+ * - read-your-writes 범위에서 이미 쓰기를 했으면 primary에서 읽는다. (ReadYourWrites 참고)
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder pinnedReads = new LongAdder();     // read-your-writes 때문에 primary에서 읽은 수
+    private final LongAdder fallbackReads = new LongAdder();   // 쓸 수 있는 복제본이 없어서 primary에서 읽은 수
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.replicas = replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // 실제로 쓰지 않은 트랜잭션도 쓰기로 본다. (primary 커넥션을 얻은 시점에는 무엇을 실행할지 알 수 없다)
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.markWrite();
+            }
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isPinnedToPrimary()) {
+            pinnedReads.increment();
+            return PRIMARY;
+        }
+        Replica replica = nextUsableReplica();
+        if (replica == null) {
+            fallbackReads.increment();
+            return PRIMARY;
+        }
+        replica.routed.increment();
+        return replica.getName();
+    }
+
+    // 라운드 로빈, 지연이 큰 복제본은 건너뛴다.
+    private Replica nextUsableReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isUsable()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("primary", primaryRoutes.sum());
+        result.put("pinnedReads", pinnedReads.sum());
+        result.put("fallbackReads", fallbackReads.sum());
+        List<Map<String, Object>> replicaStats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", replica.getName());
+            stats.put("usable", replica.isUsable());
+            stats.put("lagMillis", replica.getLagMillis());
+            stats.put("routed", replica.routed.sum());
+            replicaStats.add(stats);
+        }
+        result.put("replicas", replicaStats);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof Closeable) {
+                ((Closeable) replica.getDataSource()).close();
+            }
+        }
+    }
+
+    /**
+     * 복제본 하나와 그 상태 (ReplicaLagMonitor가 갱신한다)
+     * 처음 측정하기 전에는 지연을 모르므로 쓰지 않는다.
+     */
+    @Getter
+    public static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long lagMillis = -1;   // -1 : 모름 (측정 전, 또는 측정 실패)
+        private volatile boolean usable;
+        private final LongAdder routed = new LongAdder();
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        // @return 사용 가능 여부가 바뀌었으면 true
+        boolean update(long lagMillis, boolean usable) {
+            this.lagMillis = lagMillis;
+            boolean changed = this.usable != usable;
+            this.usable = usable;
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import study.datajpa.entity.BulkUpdateJob;
+
+@Data
+public class BulkUpdateProgress {
+
+    private Long jobId;
+    private BulkUpdateJob.Status status;
+    private int totalSlices;
+    private long doneSlices;
+    private long updatedRows;
+    private String failure;
+
+    public BulkUpdateProgress(BulkUpdateJob job, long doneSlices, long updatedRows) {
+        this.jobId = job.getId();
+        this.status = job.getStatus();
+        this.totalSlices = job.getTotalSlices();
+        this.doneSlices = doneSlices;
+        this.updatedRows = updatedRows;
+        this.failure = job.getFailure();
+    }
+}
@@ -1,16 +1,25 @@
 package study.datajpa.dto;
 
 import lombok.Data;
-import study.datajpa.entity.BaseEntity;
 import study.datajpa.entity.Member;
 
+/**
+ * 회원 조회용 DTO
+ * (엔티티가 아니므로 BaseEntity를 상속받지 않는다. 상속하면 의미 없는 등록자/수정일 필드가 API 응답에 같이 나간다.)
+ */
 @Data
-public class MemberDto extends BaseEntity {
+public class MemberDto {
 
     private Long id;
     private String username;
     private String teamName;
 
+    // JPQL 생성자 표현식용 (팀 정보가 필요 없는 목록 조회, MemberRepository.findMemberDtoPage)
+    public MemberDto(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
     public MemberDto(Long id, String username, String teamName) {
         this.id = id;
         this.username = username;
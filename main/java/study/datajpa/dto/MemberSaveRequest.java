@@ -0,0 +1,32 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.util.function.Function;
+
+/**
+ * 회원 대량 등록 요청 한 건 (POST /members/bulk)
+ */
+@Data
+@NoArgsConstructor
+public class MemberSaveRequest {
+
+    private String username;
+    private int age;
+    private Long teamId;
+
+    /**
+     * @param teamReference teamId -> Team 프록시 (getById). 팀을 실제로 조회하지 않고 FK 값만 사용한다.
+     */
+    public Member toEntity(Function<Long, Team> teamReference) {
+        Member member = new Member(username, age);
+        if (teamId != null) {
+            // changeTeam()은 team.getMembers()를 건드려서 프록시 초기화(select)가 일어나므로 대량 등록에서는 FK만 세팅한다.
+            member.setTeam(teamReference.apply(teamId));
+        }
+        return member;
+    }
+}
@@ -0,0 +1,18 @@
+package study.datajpa.dto;
+
+/**
+ * 인터페이스 기반 Projection
+ *
+ * 스프링 데이터 JPA가 조회 결과(select 절의 alias)를 이 인터페이스의 구현체(프록시)로 만들어준다.
+ * 필요한 컬럼만 select 하고 엔티티를 만들지 않으므로 영속성 컨텍스트, 스냅샷(변경감지용)이 생기지 않는다.
+ */
+public interface MemberSummary {
+
+    Long getId();
+
+    String getUsername();
+
+    int getAge();
+
+    String getTeamName();
+}
@@ -0,0 +1,15 @@
+package study.datajpa.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 회원 목록 ETag 계산용 projection (본문 없이 id와 수정 시각만 조회한다)
+ */
+public interface MemberVersion {
+
+    Long getId();
+
+    LocalDateTime getLastModifiedDate();
+
+    LocalDateTime getTeamUpdatedDate();     // 팀이 없으면 null
+}
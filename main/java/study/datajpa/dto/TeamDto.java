@@ -0,0 +1,26 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import study.datajpa.entity.Team;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 팀 + 회원 목록 조회용 DTO (TeamRepository.findTeamsWithMembers)
+ */
+@Data
+public class TeamDto {
+
+    private Long id;
+    private String name;
+    private List<MemberDto> members;
+
+    public TeamDto(Team team) {
+        this.id = team.getId();
+        this.name = team.getName();
+        this.members = team.getMembers().stream()
+                .map(member -> new MemberDto(member.getId(), member.getUsername(), team.getName()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,13 @@
+package study.datajpa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+@Data
+@AllArgsConstructor
+public class TeamOverviewDto {
+
+    private TeamStatsDto stats;
+    private Page<MemberDto> members;
+}
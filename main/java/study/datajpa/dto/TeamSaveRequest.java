@@ -0,0 +1,19 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import study.datajpa.entity.Team;
+
+/**
+ * 팀 대량 등록 요청 한 건 (POST /teams/bulk)
+ */
+@Data
+@NoArgsConstructor
+public class TeamSaveRequest {
+
+    private String name;
+
+    public Team toEntity() {
+        return new Team(name);
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import study.datajpa.entity.TeamStats;
+
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+    private long memberCount;
+    private Integer minAge;
+    private Integer maxAge;
+    private Double averageAge;
+
+    public TeamStatsDto(TeamStats stats) {
+        this.teamId = stats.getTeamId();
+        this.memberCount = stats.getMemberCount();
+        this.minAge = stats.getMinAge();
+        this.maxAge = stats.getMaxAge();
+        this.averageAge = stats.getAverageAge();
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 구간(slice) 단위로 나눠서 실행하는 벌크 연산 작업 (MemberBulkUpdater 참고)
+ *
+ * 작업 시작 시점의 id 범위 [minId, maxId]를 sliceSize 간격으로 나눈다.
+ * 끝난 slice는 BulkUpdateSlice로 기록되므로 서버가 죽어도 남은 slice부터 다시 실행할 수 있다.
+ *
+ * 실행 중인 노드(owner)는 slice를 커밋할 때마다 heartbeatAt을 DB 시각으로 갱신한다.
+ * 다른 노드는 heartbeat가 끊긴 RUNNING 작업만 조건부 update로 가져갈 수 있다. (BulkUpdateJobRepository.claim)
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "operation", "age", "status"})
+public class BulkUpdateJob extends BaseTimeEntity {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id @GeneratedValue
+    @Column(name = "job_id")
+    private Long id;
+
+    private String operation;   // ex. bulkAgePlus
+    private int age;            // bulkAgePlus의 파라미터
+    private long minId;
+    private long maxId;
+    private int sliceSize;
+    private int totalSlices;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    private String failure;
+
+    private String owner;               // 실행 중인 노드 (NodeIds)
+    private LocalDateTime heartbeatAt;  // owner가 마지막으로 살아있음을 알린 DB 시각
+
+    /**
+     * 만든 노드가 바로 실행하므로 owner를 채워서 만든다. (다른 노드의 재기동 resume이 먼저 가져가지 않도록)
+     */
+    public BulkUpdateJob(String operation, int age, long minId, long maxId, int sliceSize, String owner, LocalDateTime now) {
+        this.operation = operation;
+        this.age = age;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.sliceSize = sliceSize;
+        this.totalSlices = maxId < minId ? 0 : (int) ((maxId - minId) / sliceSize + 1);
+        this.status = Status.RUNNING;
+        this.owner = owner;
+        this.heartbeatAt = now;
+    }
+
+    // slice 번호 -> id 범위 [fromId, toId)
+    public long sliceFromId(int slice) {
+        return minId + (long) slice * sliceSize;
+    }
+
+    public long sliceToId(int slice) {
+        return Math.min(sliceFromId(slice) + sliceSize, maxId + 1);
+    }
+}
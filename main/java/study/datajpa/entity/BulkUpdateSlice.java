@@ -0,0 +1,38 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 끝난 slice 기록
+ *
+ * slice의 update와 같은 트랜잭션에서 insert 되므로, 기록이 있으면 update도 커밋된 것이고 없으면 update도 롤백된 것이다.
+ * (job_id, slice_index) 유니크 제약으로 같은 slice가 두 번 반영되는 것을 막는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_bulk_update_slice", columnNames = {"job_id", "slice_index"}))
+public class BulkUpdateSlice extends BaseTimeEntity {
+
+    @Id @GeneratedValue
+    @Column(name = "slice_id")
+    private Long id;
+
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(name = "slice_index")
+    private int sliceIndex;
+
+    private int updatedRows;
+
+    public BulkUpdateSlice(Long jobId, int sliceIndex, int updatedRows) {
+        this.jobId = jobId;
+        this.sliceIndex = sliceIndex;
+        this.updatedRows = updatedRows;
+    }
+}
@@ -1,6 +1,12 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.datajpa.cache.MemberCountCacheListener;
 
 import javax.persistence.*;
 
@@ -8,18 +14,52 @@ import javax.persistence.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@EntityListeners(MemberCountCacheListener.class)    // BaseEntity의 AuditingEntityListener에 추가로 등록된다.
+@Cacheable  // 2차 캐시 사용 (em.find, findById, 도메인 클래스 컨버터 조회 시 DB를 거치지 않는다)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
 @NamedQuery(
         name="Member.findByUsername",
-        query="select m from Member m where m.username = :username"
+        query="select m from Member m where m.username = :username",
+        hints = {   // MemberJpaRepository.findByUsername에서 써도 쿼리 캐시가 적용되도록 (MemberRepository.findByUsername 참고)
+                @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                @QueryHint(name = "org.hibernate.cacheRegion", value = "query.member-by-username")
+        }
 ) // 장점 : 애플리케이션 로딩시점에 쿼리를 파싱하여 JPQL을 SQL로 만드는 과정에서 문법 오류가 있으면 알려준다.
+@NamedQuery(    // MemberJpaRepository.findByPage - @NamedQuery로 두면 IndexAdvisor가 조건/정렬 컬럼을 점검할 수 있다.
+        name = "Member.findByPage",
+        query = "select m from Member m where m.age = :age order by m.username desc"
+)
+@Table(indexes = {  // keyset 페이징은 (정렬키, id) 인덱스가 있어야 페이지 위치와 상관없이 일정한 속도가 나온다.
+        @Index(name = "idx_member_username_id", columnList = "username, member_id"),
+        @Index(name = "idx_member_age_id", columnList = "age, member_id"),
+        @Index(name = "idx_member_age_username_id", columnList = "age, username, member_id")
+})
 public class Member extends BaseEntity {
 
-    @Id @GeneratedValue
+    /**
+     * hibernate_sequence를 공유하지 않고 엔티티별 시퀀스에서 50개씩 ID 블록을 받아와 메모리에서 나눠준다.
+     * (insert 50건당 시퀀스 호출 1번, BlockSequenceGenerator 참고)
+     */
+    @Id
+    @GeneratedValue(generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = "study.datajpa.entity.id.BlockSequenceGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+            })
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    /**
+     * 낙관적 락 - 변경 시 "where member_id = ? and version = ?" 로 update 하고 version을 1 올린다.
+     * 그 사이 다른 트랜잭션이 먼저 바꿨으면 update 된 row가 0건이라 OptimisticLockException (OptimisticLockRetry로 재시도)
+     * 벌크 연산은 이 처리를 거치지 않으므로 쿼리에서 직접 version을 올린다.
+     */
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
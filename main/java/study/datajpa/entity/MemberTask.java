@@ -0,0 +1,50 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 회원별 백그라운드 처리 작업 (lease 테이블)
+ *
+ * 여러 노드의 작업자가 이 테이블에서 작업을 나눠 가진다. (MemberTaskRepositoryCustom, MemberTaskWorkers 참고)
+ * - PENDING : 아직 아무도 가져가지 않았다.
+ * - CLAIMED : owner가 leaseUntil까지 처리 중이다. lease가 끝날 때까지 갱신되지 않으면(노드가 죽으면) 다른 작업자가 다시 가져간다.
+ * - DONE    : 처리 완료
+ * - FAILED  : maxAttempts 번 가져갔는데도 끝나지 않았다. (처리할 때마다 노드를 죽이는 작업이 계속 돌지 않도록)
+ *
+ * 회원 하나당 작업 하나 - 처리가 끝난 회원을 다시 처리하려면 다시 enqueue 한다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"memberId", "status", "owner", "leaseUntil", "attempts"})
+@Table(indexes = @Index(name = "idx_member_task_status_lease", columnList = "status, lease_until, member_id"))
+public class MemberTask {
+
+    public enum Status { PENDING, CLAIMED, DONE, FAILED }
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private String owner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    private int attempts;
+
+    public MemberTask(Long memberId) {
+        this.memberId = memberId;
+        this.status = Status.PENDING;
+    }
+}
@@ -1,6 +1,12 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.*;
@@ -9,13 +15,30 @@ import java.util.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
+// 초기화 안된 Team 프록시 중 하나에 접근하면 영속성 컨텍스트의 다른 Team 프록시까지 in 절 한 번으로 가져온다. (default_batch_fetch_size)
+// 클래스에 @BatchSize를 따로 붙이지 않아서 벤치마크처럼 설정 하나로 끌 수 있다.
 public class Team extends JpaBaseEntity {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "team_seq_generator")
+    @GenericGenerator(name = "team_seq_generator", strategy = "study.datajpa.entity.id.BlockSequenceGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+            })  // Member.id 참고
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @Version    // Member.version 참고
+    private Long version;
+
+    // 컬렉션 캐시는 회원 id 목록만 저장하고, 회원 엔티티는 member region에서 가져온다.
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team.members")
+    // 소속 회원은 Member.team이 관리하므로 회원이 들어오고 나가도 팀 version을 올리지 않는다. (팀 하나에 회원 가입이 몰려도 충돌 X)
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "team")    // FK가 없는 쪽에 mappedBy를 거는게 좋다.
     private List<Member> members = new ArrayList<>();
 
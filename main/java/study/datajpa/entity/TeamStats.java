@@ -0,0 +1,39 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 팀 통계 읽기 모델 (팀당 row 하나)
+ *
+ * Team.members를 로딩하거나 count/avg 쿼리를 날리지 않고 팀 통계를 O(1)로 조회하기 위한 테이블이다.
+ * 회원이 저장, 삭제, 팀 이동, 나이 변경될 때 같은 트랜잭션에서 갱신된다. (TeamStatsListener, TeamStatsAspect 참고)
+ * JPA로는 조회만 하고, 갱신은 JDBC로 직접 한다. (@Immutable)
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    private long memberCount;
+    private long ageSum;
+    private Integer minAge;     // 회원이 없으면 null
+    private Integer maxAge;
+
+    public Double getAverageAge() {
+        return memberCount == 0 ? null : (double) ageSum / memberCount;
+    }
+}
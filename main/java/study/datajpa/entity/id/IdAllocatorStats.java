@@ -0,0 +1,73 @@
+package study.datajpa.entity.id;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ID 블록 할당기 통계 (시퀀스 이름별)
+ *
+ * 옵티마이저는 하이버네이트가 직접 생성하므로 스프링 빈으로 주입할 수 없다. 그래서 static 레지스트리에 모아둔다.
+ */
+public class IdAllocatorStats {
+
+    private static final Map<String, IdAllocatorStats> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final int blockSize;
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder contentions = new LongAdder();
+    private final LongAdder refillNanos = new LongAdder();
+
+    private IdAllocatorStats(String name, int blockSize) {
+        this.name = name;
+        this.blockSize = blockSize;
+    }
+
+    public static IdAllocatorStats register(String name, int blockSize) {
+        return REGISTRY.computeIfAbsent(name, key -> new IdAllocatorStats(key, blockSize));
+    }
+
+    // 레지스트리에 등록하지 않는 통계 (이름이 정해지기 전에 사용)
+    static IdAllocatorStats unregistered(int blockSize) {
+        return new IdAllocatorStats("unregistered", blockSize);
+    }
+
+    public static Collection<IdAllocatorStats> all() {
+        return Collections.unmodifiableCollection(REGISTRY.values());
+    }
+
+    void allocated() {
+        allocations.increment();
+    }
+
+    void refilled(long elapsedNanos) {
+        refills.increment();
+        refillNanos.add(elapsedNanos);
+    }
+
+    // 블록이 소진된 순간 다른 스레드가 이미 리필 중이어서 기다려야 했던 횟수
+    void contended() {
+        contentions.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("name", name);
+        snapshot.put("blockSize", blockSize);
+        snapshot.put("allocations", allocations.sum());
+        snapshot.put("refills", refills.sum());
+        snapshot.put("contentions", contentions.sum());
+        snapshot.put("refillTimeMs", TimeUnit.NANOSECONDS.toMillis(refillNanos.sum()));
+        return snapshot;
+    }
+}
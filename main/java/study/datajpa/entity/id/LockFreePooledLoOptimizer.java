@@ -0,0 +1,110 @@
+package study.datajpa.entity.id;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 블록 단위 ID 할당 옵티마이저 (pooled-lo 방식)
+ *
+ * DB 시퀀스를 increment by {블록 크기}로 만들어 두고, nextval 한 번으로 [값, 값 + 블록 크기) 구간을 통째로 예약한다.
+ * 시퀀스 증가는 DB가 원자적으로 처리하므로 여러 애플리케이션 노드가 같은 DB를 써도 블록이 겹치지 않는다.
+ *
+ * 하이버네이트 기본 pooled-lo 옵티마이저는 generate()가 synchronized라서 insert가 몰리면 스레드들이 줄을 선다.
+ * 여기서는 블록 안의 ID를 AtomicLong으로 나눠주고, 블록이 다 떨어졌을 때(리필)만 락을 잡는다.
+ *
+ * SequenceStyleGenerator의 optimizer 파라미터로 클래스 이름을 넘기면 사용된다. (BlockSequenceGenerator 참고)
+ */
+public class LockFreePooledLoOptimizer implements Optimizer {
+
+    private final Class returnClass;
+    private final int incrementSize;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile IntegralDataTypeHolder lastSourceValue;
+    private volatile IdAllocatorStats stats;
+
+    // OptimizerFactory가 리플렉션으로 (Class, int) 생성자를 호출한다.
+    public LockFreePooledLoOptimizer(Class returnClass, int incrementSize) {
+        if (incrementSize < 1) {
+            throw new IllegalArgumentException("increment size must be positive: " + incrementSize);
+        }
+        this.returnClass = returnClass;
+        this.incrementSize = incrementSize;
+        this.stats = IdAllocatorStats.unregistered(incrementSize); // 시퀀스 이름은 configure 이후에 알 수 있다.
+    }
+
+    void bindStats(String name) {
+        this.stats = IdAllocatorStats.register(name, incrementSize);
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+        while (true) {
+            Block block = current.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                stats.allocated();
+                return (Serializable) IdentifierGeneratorHelper.getIntegralDataTypeHolder(returnClass)
+                        .initialize(id)
+                        .makeValue();
+            }
+            refill(block, callback);
+        }
+    }
+
+    private void refill(Block exhausted, AccessCallback callback) {
+        if (!refillLock.tryLock()) {
+            stats.contended();
+            refillLock.lock();
+        }
+        try {
+            if (current.get() != exhausted) {
+                return; // 기다리는 동안 다른 스레드가 이미 새 블록을 받아왔다.
+            }
+            long start = System.nanoTime();
+            IntegralDataTypeHolder value = callback.getNextValue();
+            long lo = value.makeValue().longValue();
+            current.set(new Block(lo, lo + incrementSize));
+            lastSourceValue = value;
+            stats.refilled(System.nanoTime() - start);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+        return lastSourceValue;
+    }
+
+    @Override
+    public int getIncrementSize() {
+        return incrementSize;
+    }
+
+    // true: DB 시퀀스를 increment by {incrementSize}로 만든다.
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+        return true;
+    }
+
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        final AtomicLong next;
+        final long end;  // exclusive
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.datajpa.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 리포지토리 메서드 하나의 지표 (호출 수, 지연 시간 히스토그램, 조회/변경 row 수, 예외 수)
+ */
+public class RepositoryMethodMetrics {
+
+    private final String repository;
+    private final String method;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    RepositoryMethodMetrics(String repository, String method) {
+        this.repository = repository;
+        this.method = method;
+    }
+
+    void succeeded(long nanos, long rowCount) {
+        latency.record(nanos);
+        rows.add(rowCount);
+    }
+
+    void failed(long nanos) {
+        latency.record(nanos);
+        errors.increment();
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("repository", repository);
+        snapshot.put("method", method);
+        snapshot.put("calls", latency.count());
+        snapshot.put("errors", getErrors());
+        snapshot.put("rows", getRows());
+        snapshot.put("p50Ms", toMillis(latency.percentileNanos(0.50)));
+        snapshot.put("p95Ms", toMillis(latency.percentileNanos(0.95)));
+        snapshot.put("p99Ms", toMillis(latency.percentileNanos(0.99)));
+        snapshot.put("totalTimeMs", TimeUnit.NANOSECONDS.toMillis(latency.sumNanos()));
+        return snapshot;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
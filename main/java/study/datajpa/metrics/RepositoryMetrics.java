@@ -0,0 +1,87 @@
+package study.datajpa.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * 리포지토리 메서드별 지표 레지스트리 (RepositoryMetricsAspect가 채운다)
+ */
+@Component
+public class RepositoryMetrics {
+
+    private final Map<String, Map<String, RepositoryMethodMetrics>> repositories = new ConcurrentHashMap<>();
+
+    public RepositoryMethodMetrics get(String repository, String method) {
+        Map<String, RepositoryMethodMetrics> methods = repositories.get(repository);
+        if (methods == null) {
+            methods = repositories.computeIfAbsent(repository, key -> new ConcurrentHashMap<>());
+        }
+        RepositoryMethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(method, key -> new RepositoryMethodMetrics(repository, key));
+        }
+        return metrics;
+    }
+
+    public List<RepositoryMethodMetrics> all() {
+        List<RepositoryMethodMetrics> all = new ArrayList<>();
+        repositories.values().stream().map(Map::values).forEach(all::addAll);
+        all.sort(Comparator.comparing(RepositoryMethodMetrics::getRepository).thenComparing(RepositoryMethodMetrics::getMethod));
+        return all;
+    }
+
+    /**
+     * Prometheus text format (version 0.0.4)
+     */
+    public String toPrometheus() {
+        List<RepositoryMethodMetrics> all = all();
+        double[] bounds = LatencyHistogram.powersOfTwoBoundsSeconds();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP datajpa_repository_latency_seconds Repository method latency.\n");
+        sb.append("# TYPE datajpa_repository_latency_seconds histogram\n");
+        for (RepositoryMethodMetrics metrics : all) {
+            String labels = labels(metrics);
+            long[] cumulative = metrics.getLatency().cumulativeCountsAtPowersOfTwo();
+            for (int i = 0; i < bounds.length; i++) {
+                sb.append("datajpa_repository_latency_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(format(bounds[i])).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            sb.append("datajpa_repository_latency_seconds_bucket{").append(labels)
+                    .append(",le=\"+Inf\"} ").append(cumulative[cumulative.length - 1]).append('\n');
+            sb.append("datajpa_repository_latency_seconds_sum{").append(labels).append("} ")
+                    .append(format(metrics.getLatency().sumNanos() / 1e9)).append('\n');
+            sb.append("datajpa_repository_latency_seconds_count{").append(labels).append("} ")
+                    .append(metrics.getLatency().count()).append('\n');
+        }
+
+        counter(sb, all, "datajpa_repository_rows_total", "Rows returned by repository query methods.", RepositoryMethodMetrics::getRows);
+        counter(sb, all, "datajpa_repository_errors_total", "Repository method invocations that threw.", RepositoryMethodMetrics::getErrors);
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, Collection<RepositoryMethodMetrics> all, String name, String help,
+                                ToLongFunction<RepositoryMethodMetrics> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        for (RepositoryMethodMetrics metrics : all) {
+            sb.append(name).append('{').append(labels(metrics)).append("} ").append(value.applyAsLong(metrics)).append('\n');
+        }
+    }
+
+    private static String labels(RepositoryMethodMetrics metrics) {
+        return "repository=\"" + metrics.getRepository() + "\",method=\"" + metrics.getMethod() + "\"";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
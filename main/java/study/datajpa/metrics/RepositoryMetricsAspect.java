@@ -0,0 +1,90 @@
+package study.datajpa.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.KeysetSlice;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+
+/**
+ * 리포지토리 메서드 호출마다 지연 시간, row 수, 예외 수를 기록한다.
+ *
+ * 스프링 데이터 JPA 리포지토리는 인터페이스 프록시라서 this(인터페이스)로, 직접 만든 리포지토리는 within(클래스)로 잡는다.
+ * Stream을 반환하는 메서드는 쿼리 실행까지만 측정하고 row 수는 세지 않는다. (소비는 호출한 쪽에서 일어난다)
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final RepositoryMetrics metrics;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("this(study.datajpa.repository.MemberRepository) || this(study.datajpa.repository.TeamRepository)" +
+            " || within(study.datajpa.repository.MemberJpaRepository) || within(study.datajpa.repository.TeamJpaRepository)" +
+            " || within(study.datajpa.repository.MemberRepositoryImpl)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryMethodMetrics methodMetrics = metrics.get(repositoryName(joinPoint), joinPoint.getSignature().getName());
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            methodMetrics.failed(System.nanoTime() - start);
+            throw e;
+        }
+        methodMetrics.succeeded(System.nanoTime() - start, rowCount(result));
+        return result;
+    }
+
+    private String repositoryName(ProceedingJoinPoint joinPoint) {
+        Object proxy = joinPoint.getThis();
+        return repositoryNames.computeIfAbsent(proxy.getClass(), type -> {
+            if (proxy instanceof MemberRepository) {
+                return MemberRepository.class.getSimpleName();
+            }
+            if (proxy instanceof TeamRepository) {
+                return TeamRepository.class.getSimpleName();
+            }
+            return AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName();
+        });
+    }
+
+    /**
+     * 조회 메서드가 반환한 row(엔티티, DTO) 수
+     * count(), existsBy, 벌크 연산처럼 숫자, boolean 하나를 반환하면 row를 반환한 것이 아니므로 0
+     */
+    static long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof KeysetSlice) {
+            return ((KeysetSlice<?>) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean
+                || result instanceof BaseStream || result instanceof Iterable) {
+            return 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,118 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DB 조회용 Executor - 동시에 실행되는 작업 수를 커넥션 풀 크기로 제한한다.
+ *
+ * 커넥션 풀보다 많은 조회가 한꺼번에 들어오면 풀에서 커넥션을 기다리다 connectionTimeout으로 실패하거나
+ * 요청 스레드를 붙잡은 채 줄을 선다. 여기서는 커넥션을 얻기 전에 semaphore에서 기다리게 하고,
+ * 대기 중인 작업이 max-queued를 넘으면 바로 거절한다. (RejectedExecutionException -> 503)
+ *
+ * - Java 21 이상이면 작업마다 가상 스레드 하나 (기다리는 동안 OS 스레드를 점유하지 않는다)
+ * - 그보다 낮으면 maxConcurrency개짜리 고정 스레드 풀 (대기는 풀의 큐에서)
+ *   컴파일 대상이 Java 11이라 가상 스레드 Executor는 리플렉션으로 만든다.
+ */
+@Slf4j
+public class AdmissionControlledExecutor implements Executor, AutoCloseable {
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final boolean virtualThreads;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final AtomicInteger admitted = new AtomicInteger();    // 실행 중 + 대기 중
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionControlledExecutor(String name, int maxConcurrency, int maxQueued) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.permits = new Semaphore(maxConcurrency, true);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.delegate = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("{} executor: {} (max concurrency {}, max queued {})",
+                name, virtualThreads ? "virtual threads" : "platform threads", maxConcurrency, this.maxQueued);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;    // Java 21 미만 (19, 20은 --enable-preview 없이 호출하면 예외)
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (admitted.incrementAndGet() > maxConcurrency + maxQueued) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException(name + " is saturated: " + maxConcurrency + " running, " + maxQueued + " queued");
+        }
+        try {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    admitted.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getRunning() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return Math.max(0, admitted.get() - getRunning());
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("virtualThreads", virtualThreads);
+        result.put("maxConcurrency", maxConcurrency);
+        result.put("maxQueued", maxQueued);
+        result.put("running", getRunning());
+        result.put("queued", getQueued());
+        result.put("completed", completed.sum());
+        result.put("rejected", rejected.sum());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.repository;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 대량 insert 공통 처리 (MemberRepositoryImpl, TeamRepositoryImpl에서 사용)
+ *
+ * persist만 계속 하면 영속성 컨텍스트에 엔티티와 스냅샷이 계속 쌓여서 메모리가 터지고 flush도 점점 느려진다.
+ * batchSize 건마다 flush(JDBC batch로 insert 전송) + clear(영속성 컨텍스트 비우기)를 해서
+ * 메모리 사용량과 DB 왕복 횟수를 batchSize 단위로 고정한다.
+ *
+ * ※ hibernate.jdbc.batch_size, order_inserts 설정이 있어야 insert가 실제로 JDBC batch로 묶인다. (application.yml)
+ * ※ clear를 하므로 같은 트랜잭션에서 이미 조회해 둔 엔티티도 준영속 상태가 된다.
+ * ※ 커밋까지 남는 것도 건수와 상관없어야 한다. 엔티티 리스너가 row마다 트랜잭션 synchronization을 등록하면
+ *    영속성 컨텍스트를 비워도 synchronization이 커밋 시점까지 쌓인다. (MemberCountCache는 트랜잭션당 하나만 등록한다)
+ */
+final class BatchInsertSupport {
+
+    private BatchInsertSupport() {
+    }
+
+    static <T> int persistInBatches(EntityManager em, Iterable<T> entities, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+
+        int count = 0;
+        for (T entity : entities) {
+            em.persist(entity);
+            if (++count % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return count;
+    }
+}
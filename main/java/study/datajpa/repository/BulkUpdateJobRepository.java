@@ -0,0 +1,43 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import study.datajpa.entity.BulkUpdateJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BulkUpdateJobRepository extends JpaRepository<BulkUpdateJob, Long> {
+
+    List<BulkUpdateJob> findByStatus(BulkUpdateJob.Status status);
+
+    /**
+     * 작업 가져가기 - 조건부 update라서 여러 노드가 동시에 시도해도 한 노드만 1을 받는다.
+     * RUNNING이 아니거나, 이미 내 것이거나, heartbeat가 staleBefore 이전에 끊긴 작업만 가져갈 수 있다.
+     * @return 가져갔으면 1
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update BulkUpdateJob j set j.owner = :owner, j.status = :running, j.failure = null, j.heartbeatAt = :now" +
+            " where j.id = :id and (j.status <> :running or j.owner is null or j.owner = :owner or j.heartbeatAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("running") BulkUpdateJob.Status running,
+              @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * owner가 아직 살아있음을 알린다. 0이면 그 사이 다른 노드가 가져간 것이다.
+     */
+    @Modifying
+    @Query("update BulkUpdateJob j set j.heartbeatAt = :now where j.id = :id and j.owner = :owner and j.status = :running")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("running") BulkUpdateJob.Status running,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * 작업 종료 기록 - 아직 owner인 경우에만 바꾼다. (가져간 노드의 실행을 덮어쓰지 않도록)
+     */
+    @Modifying
+    @Query("update BulkUpdateJob j set j.status = :status, j.failure = :failure" +
+            " where j.id = :id and j.owner = :owner and j.status = :running")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("running") BulkUpdateJob.Status running,
+               @Param("status") BulkUpdateJob.Status status, @Param("failure") String failure);
+}
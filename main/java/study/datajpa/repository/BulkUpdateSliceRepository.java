@@ -0,0 +1,19 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import study.datajpa.entity.BulkUpdateSlice;
+
+import java.util.List;
+
+public interface BulkUpdateSliceRepository extends JpaRepository<BulkUpdateSlice, Long> {
+
+    @Query("select s.sliceIndex from BulkUpdateSlice s where s.jobId = :jobId")
+    List<Integer> findDoneSliceIndexes(@Param("jobId") Long jobId);
+
+    long countByJobId(Long jobId);
+
+    @Query("select coalesce(sum(s.updatedRows), 0) from BulkUpdateSlice s where s.jobId = :jobId")
+    long sumUpdatedRows(@Param("jobId") Long jobId);
+}
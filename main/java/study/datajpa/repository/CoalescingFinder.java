@@ -0,0 +1,77 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 있는 id에 대한 findById 동시 요청을 하나의 조회로 합친다. (SingleFlight 참고)
+ *
+ * 같은 id로 동시에 들어온 요청들은 트랜잭션과 select를 각자 실행하지 않고 먼저 온 요청의 조회 결과를 나눠 쓴다.
+ * 결과 엔티티를 여러 요청(스레드)이 공유하므로 요청의 영속성 컨텍스트가 아니라 조회 전용 EntityManager에서 읽고 바로 닫는다.
+ * 즉, 돌려받은 엔티티는 준영속 상태이므로 기본 필드만 읽어야 한다. (지연 로딩 X, 변경해도 반영 X)
+ */
+@Component
+public class CoalescingFinder {
+
+    private final EntityManagerFactory emf;
+    private final ThreadPoolExecutor revalidator;   // 스레드 수와 대기 작업 수가 정해져 있다. (넘치면 갱신을 건너뛴다)
+    private final SingleFlight<Long, Member> members;
+    private final SingleFlight<Long, Team> teams;
+
+    public CoalescingFinder(EntityManagerFactory emf,
+                            @Value("${datajpa.single-flight.fresh-ms:1000}") long freshWindowMillis,
+                            @Value("${datajpa.single-flight.stale-while-revalidate-ms:0}") long staleWindowMillis,
+                            @Value("${datajpa.single-flight.max-keys:1000}") int maxKeys,
+                            @Value("${datajpa.single-flight.revalidate-threads:2}") int revalidateThreads,
+                            @Value("${datajpa.single-flight.revalidate-queue:100}") int revalidateQueue) {
+        this.emf = emf;
+        this.revalidator = new ThreadPoolExecutor(revalidateThreads, revalidateThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(revalidateQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "single-flight-revalidate");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.revalidator.allowCoreThreadTimeOut(true);
+        this.members = new SingleFlight<>("member", freshWindowMillis, staleWindowMillis, maxKeys, revalidator);
+        this.teams = new SingleFlight<>("team", freshWindowMillis, staleWindowMillis, maxKeys, revalidator);
+    }
+
+    public Optional<Member> findMember(Long id) {
+        return Optional.ofNullable(members.get(id, key -> find(Member.class, key)));
+    }
+
+    public Optional<Team> findTeam(Long id) {
+        return Optional.ofNullable(teams.get(id, key -> find(Team.class, key)));
+    }
+
+    public List<SingleFlight<Long, ?>> getFlights() {
+        return Arrays.asList(members, teams);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        revalidator.shutdownNow();
+    }
+
+    // 2차 캐시에 있으면 커넥션을 쓰지 않는다.
+    private <T> T find(Class<T> type, Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(type, id);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package study.datajpa.repository;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+/**
+ * DB 서버의 현재 시각 (current_timestamp)
+ *
+ * 여러 노드가 같은 테이블로 lease, heartbeat를 주고받을 때 노드마다 JVM 시계를 쓰면
+ * 시계가 빠른 노드는 아직 살아있는 lease를 가져가고, 느린 노드는 죽은 노드의 lease를 영영 못 가져간다.
+ * 만료 시각은 모두 이 시계로 계산하고, 비교는 쿼리 안에서 current_timestamp로 한다.
+ *
+ * 트랜잭션 안에서 호출하면 그 트랜잭션의 커넥션을 쓴다. (하이버네이트 DbTimestampType과 같은 방식)
+ */
+@Component
+public class DatabaseClock {
+
+    private final DataSource dataSource;
+    private final Dialect dialect;
+
+    public DatabaseClock(DataSource dataSource, EntityManagerFactory emf) {
+        this.dataSource = dataSource;
+        this.dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!dialect.supportsCurrentTimestampSelection()) {
+            throw new IllegalStateException(dialect + " cannot select current_timestamp");
+        }
+    }
+
+    public LocalDateTime now() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return select(connection).toLocalDateTime();
+        } catch (SQLException e) {
+            throw new IllegalStateException("failed to read database time", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private Timestamp select(Connection connection) throws SQLException {
+        String sql = dialect.getCurrentTimestampSelectString();
+        if (dialect.isCurrentTimestampSelectStringCallable()) {
+            try (CallableStatement call = connection.prepareCall(sql)) {
+                call.registerOutParameter(1, Types.TIMESTAMP);
+                call.execute();
+                return call.getTimestamp(1);
+            }
+        }
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+}
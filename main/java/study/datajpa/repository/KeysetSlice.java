@@ -0,0 +1,35 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset 페이징 결과
+ *
+ * Page와 달리 totalCount, 페이지 번호가 없다. (그것을 구하려면 결국 앞의 row를 세어야 하므로)
+ * 대신 다음 페이지를 요청할 때 그대로 넘기면 되는 커서 토큰(next)을 내려준다.
+ */
+@Getter
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String next;  // 마지막 페이지면 null
+
+    public KeysetSlice(List<T> content, int size, boolean hasNext, String next) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.next = next;
+    }
+
+    // Page.map()처럼 엔티티 -> DTO 변환에 사용
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = content.stream().map(converter).collect(Collectors.toList());
+        return new KeysetSlice<>(converted, size, hasNext, next);
+    }
+}
@@ -0,0 +1,92 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.datasource.ReadYourWrites;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.TeamStats;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepository 주요 조회의 비동기 버전 - 서로 관계없는 조회를 동시에 실행할 때 쓴다.
+ *
+ * CompletableFuture<Page<MemberDto>> members = memberAsyncRepository.findMemberDtoPageByTeamId(teamId, pageable);
+ * CompletableFuture<Optional<TeamStats>> stats = memberAsyncRepository.findTeamStats(teamId);
+ * members.thenCombine(stats, ...)  // 두 조회 시간의 합이 아니라 긴 쪽만큼 걸린다.
+ *
+ * - 조회 하나 = 읽기 전용 트랜잭션 하나 (복제본이 설정되어 있으면 복제본에서 읽는다, ReplicaRoutingConfig 참고)
+ * - 동시에 실행되는 조회 수는 커넥션 풀 크기로 제한하고, 넘치는 조회는 커넥션을 잡지 않고 기다린다. (AdmissionControlledExecutor)
+ * - 대기 중인 조회가 max-queued를 넘으면 RejectedExecutionException을 바로 던진다.
+ * - 다른 스레드의 트랜잭션에서 읽으므로 돌려받은 엔티티는 준영속 상태다. (지연 로딩 X) 가능하면 DTO 조회를 쓴다.
+ */
+@Component
+public class MemberAsyncRepository {
+
+    private final MemberRepository memberRepository;
+    private final TeamStatsRepository teamStatsRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final AdmissionControlledExecutor executor;
+
+    public MemberAsyncRepository(MemberRepository memberRepository,
+                                 TeamStatsRepository teamStatsRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                 @Value("${datajpa.async.max-concurrency:0}") int maxConcurrency,
+                                 @Value("${datajpa.async.max-queued:1000}") int maxQueued) {
+        this.memberRepository = memberRepository;
+        this.teamStatsRepository = teamStatsRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.executor = new AdmissionControlledExecutor("repository-async", maxConcurrency > 0 ? maxConcurrency : poolSize, maxQueued);
+    }
+
+    public CompletableFuture<List<Member>> findByUsername(String username) {
+        return submit(() -> memberRepository.findByUsername(username));
+    }
+
+    public CompletableFuture<Page<Member>> findByAge(int age, Pageable pageable) {
+        return submit(() -> memberRepository.findByAge(age, pageable));
+    }
+
+    public CompletableFuture<List<MemberDto>> findMemberDto() {
+        return submit(memberRepository::findMemberDto);
+    }
+
+    public CompletableFuture<Page<MemberDto>> findMemberDtoPageByTeamId(Long teamId, Pageable pageable) {
+        return submit(() -> memberRepository.findMemberDtoPageByTeamId(teamId, pageable));
+    }
+
+    public CompletableFuture<Optional<TeamStats>> findTeamStats(Long teamId) {
+        return submit(() -> teamStatsRepository.findById(teamId));
+    }
+
+    /**
+     * 임의의 조회를 같은 제한 아래에서 실행한다.
+     * @throws RejectedExecutionException 대기 중인 조회가 너무 많을 때 (호출한 스레드에서 바로)
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        // 요청 스레드의 read-your-writes 범위를 이어받는다. (방금 쓴 내용을 복제본이 아니라 primary에서 읽도록)
+        Supplier<T> work = ReadYourWrites.inherit(() -> readOnlyTx.execute(status -> query.get()));
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    public AdmissionControlledExecutor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+}
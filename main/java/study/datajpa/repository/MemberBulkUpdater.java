@@ -0,0 +1,244 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.BulkUpdateProgress;
+import study.datajpa.entity.BulkUpdateJob;
+import study.datajpa.entity.BulkUpdateSlice;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * bulkAgePlus를 id 구간(slice) 단위로 나눠서 실행한다.
+ *
+ * MemberRepository.bulkAgePlus는 update 한 번으로 조건에 맞는 모든 row를 잠그고, 끝날 때까지 다른 쓰기를 막는다.
+ * 여기서는 id 범위를 sliceSize 간격으로 나누고 slice마다 별도 트랜잭션으로 커밋하므로 잠금이 slice 단위로 짧게 끝난다.
+ *
+ * - 병렬 실행 : parallelism 개의 작업자가 남은 slice를 하나씩 가져가서 각자 커넥션으로 실행한다.
+ * - 재시작   : slice의 update와 완료 기록(BulkUpdateSlice)을 같은 트랜잭션에서 커밋하므로,
+ *              중간에 죽어도 기록이 없는 slice만 다시 실행하면 된다. (resume)
+ * - 진행 상황 : progress(jobId) 또는 GET /members/bulk-age-plus/{jobId}
+ * - 여러 노드 : 실행 전에 작업을 조건부 update로 가져간다. (BulkUpdateJobRepository.claim)
+ *              재기동한 노드 여러 대가 동시에 resume 해도 한 노드만 실행하고, 나머지는 건너뛴다.
+ *              owner는 slice를 커밋할 때마다 같은 트랜잭션에서 heartbeat를 남기고, stale-seconds 동안 heartbeat가 없는
+ *              작업만 다른 노드가 가져갈 수 있다. 가져가진 쪽은 다음 heartbeat가 0건이라 그 slice를 롤백하고 멈춘다.
+ *
+ * 단, 전체가 하나의 트랜잭션이 아니므로 실행 중에는 일부 slice만 반영된 상태가 다른 트랜잭션에 보인다.
+ */
+@Slf4j
+@Component
+public class MemberBulkUpdater {
+
+    public static final String BULK_AGE_PLUS = "bulkAgePlus";
+
+    private final MemberRepository memberRepository;
+    private final BulkUpdateJobRepository jobRepository;
+    private final BulkUpdateSliceRepository sliceRepository;
+    private final TransactionTemplate tx;
+    private final DatabaseClock clock;
+    private final String nodeId;
+    private final int maxParallelism;
+    private final boolean resumeOnStartup;
+    private final long staleSeconds;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-update");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService resumer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-update-resume");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public MemberBulkUpdater(MemberRepository memberRepository,
+                             BulkUpdateJobRepository jobRepository,
+                             BulkUpdateSliceRepository sliceRepository,
+                             PlatformTransactionManager transactionManager,
+                             DatabaseClock clock,
+                             @Value("${datajpa.bulk-update.node-id:}") String nodeId,
+                             @Value("${datajpa.bulk-update.max-parallelism:4}") int maxParallelism,
+                             @Value("${datajpa.bulk-update.resume-on-startup:true}") boolean resumeOnStartup,
+                             @Value("${datajpa.bulk-update.stale-seconds:60}") long staleSeconds) {
+        this.memberRepository = memberRepository;
+        this.jobRepository = jobRepository;
+        this.sliceRepository = sliceRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.nodeId = NodeIds.resolve(nodeId);
+        this.maxParallelism = maxParallelism;
+        this.resumeOnStartup = resumeOnStartup;
+        this.staleSeconds = staleSeconds;
+    }
+
+    /**
+     * 현재 회원 id 범위로 작업을 만든다. (이후에 추가되는 회원은 대상이 아니다)
+     */
+    public BulkUpdateJob createAgePlusJob(int age, int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("sliceSize must be positive: " + sliceSize);
+        }
+        Long minId = memberRepository.findMinId();
+        Long maxId = memberRepository.findMaxId();
+        LocalDateTime now = clock.now();
+        BulkUpdateJob job = minId == null
+                ? new BulkUpdateJob(BULK_AGE_PLUS, age, 1, 0, sliceSize, nodeId, now)    // 회원이 없으면 slice 0개
+                : new BulkUpdateJob(BULK_AGE_PLUS, age, minId, maxId, sliceSize, nodeId, now);
+        return jobRepository.save(job);
+    }
+
+    /**
+     * 아직 끝나지 않은 slice를 실행한다. 새 작업 실행과 중단된 작업 재시작 모두 이 메서드를 쓴다.
+     * 이미 이 서버에서 실행 중이거나 다른 노드가 실행 중(heartbeat가 살아있는)인 작업이면 현재 진행 상황을 바로 반환한다.
+     */
+    public CompletableFuture<BulkUpdateProgress> run(Long jobId, int parallelism) {
+        if (!runningJobs.add(jobId)) {
+            return CompletableFuture.completedFuture(progress(jobId));
+        }
+        try {
+            BulkUpdateJob job = tx.execute(status -> {
+                LocalDateTime now = clock.now();
+                int claimed = jobRepository.claim(jobId, nodeId, BulkUpdateJob.Status.RUNNING, now, now.minusSeconds(staleSeconds));
+                return claimed == 1 ? findJob(jobId) : null;
+            });
+            if (job == null) {
+                runningJobs.remove(jobId);
+                log.info("bulk update job {} is owned by another node", jobId);
+                return CompletableFuture.completedFuture(progress(jobId));
+            }
+
+            Set<Integer> done = new HashSet<>(sliceRepository.findDoneSliceIndexes(jobId));
+            Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+            for (int slice = 0; slice < job.getTotalSlices(); slice++) {
+                if (!done.contains(slice)) {
+                    pending.add(slice);
+                }
+            }
+
+            AtomicInteger doneCount = new AtomicInteger(done.size());
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            int workers = Math.max(1, Math.min(Math.min(parallelism, maxParallelism), pending.size()));
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+            for (int i = 0; i < workers; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> drain(job, pending, doneCount, failure), executor);
+            }
+            return CompletableFuture.allOf(futures)
+                    .handle((ignored, e) -> finish(jobId, failure.get()));
+        } catch (RuntimeException e) {
+            runningJobs.remove(jobId);
+            throw e;
+        }
+    }
+
+    public BulkUpdateProgress progress(Long jobId) {
+        BulkUpdateJob job = findJob(jobId);
+        return new BulkUpdateProgress(job, sliceRepository.countByJobId(jobId), sliceRepository.sumUpdatedRows(jobId));
+    }
+
+    /**
+     * 서버가 실행 중에 죽으면 작업이 RUNNING 상태로 남는다. 기동 후 stale-seconds 마다 남은 slice부터 이어서 실행한다.
+     * (죽은 노드의 heartbeat가 아직 끊기지 않았으면 다음 확인 때 가져간다)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleResume() {
+        if (resumeOnStartup) {
+            resumer.scheduleWithFixedDelay(this::resumeInterruptedJobs, 0, staleSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void resumeInterruptedJobs() {
+        try {
+            for (BulkUpdateJob job : jobRepository.findByStatus(BulkUpdateJob.Status.RUNNING)) {
+                if (!runningJobs.contains(job.getId())) {
+                    run(job.getId(), maxParallelism);   // 다른 노드가 먼저 가져갔거나 아직 실행 중이면 건너뛴다.
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("failed to resume bulk update jobs", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resumer.shutdownNow();
+        executor.shutdownNow(); // 실행 중인 slice는 커밋되거나 롤백되고, 나머지는 heartbeat가 끊긴 뒤 이어서 실행된다.
+    }
+
+    private void drain(BulkUpdateJob job, Queue<Integer> pending, AtomicInteger doneCount, AtomicReference<RuntimeException> failure) {
+        Integer slice;
+        while (failure.get() == null && !Thread.currentThread().isInterrupted() && (slice = pending.poll()) != null) {
+            try {
+                int rows = runSlice(job, slice);
+                log.debug("bulk update job {} slice {} : {} rows ({}/{})",
+                        job.getId(), slice, rows, doneCount.incrementAndGet(), job.getTotalSlices());
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);   // OwnershipLostException이면 남은 slice는 가져간 노드가 실행한다.
+            }
+        }
+    }
+
+    private int runSlice(BulkUpdateJob job, int slice) {
+        return tx.execute(status -> {
+            int rows = memberRepository.bulkAgePlusInRange(job.getAge(), job.sliceFromId(slice), job.sliceToId(slice));
+            sliceRepository.save(new BulkUpdateSlice(job.getId(), slice, rows));
+            // 다른 노드가 가져갔으면 이 slice도 롤백한다.
+            if (jobRepository.heartbeat(job.getId(), nodeId, BulkUpdateJob.Status.RUNNING, clock.now()) == 0) {
+                throw new OwnershipLostException(job.getId());
+            }
+            return rows;
+        });
+    }
+
+    private BulkUpdateProgress finish(Long jobId, RuntimeException failure) {
+        try {
+            tx.executeWithoutResult(status -> {
+                BulkUpdateJob job = findJob(jobId);
+                if (failure instanceof OwnershipLostException) {
+                    log.info("bulk update job {} was taken over by {}", jobId, job.getOwner());
+                } else if (failure != null) {
+                    log.warn("bulk update job {} failed, resume to continue from the last finished slice", jobId, failure);
+                    jobRepository.finish(jobId, nodeId, BulkUpdateJob.Status.RUNNING,
+                            BulkUpdateJob.Status.FAILED, String.valueOf(failure.getMessage()));
+                } else if (sliceRepository.countByJobId(jobId) == job.getTotalSlices()) {
+                    jobRepository.finish(jobId, nodeId, BulkUpdateJob.Status.RUNNING, BulkUpdateJob.Status.COMPLETED, null);
+                }
+                // 실패도 완료도 아니면 shutdown으로 중단된 것이므로 RUNNING으로 남겨 heartbeat가 끊긴 뒤 이어서 실행한다.
+            });
+            return progress(jobId);
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    // slice를 커밋하려는데 그 사이 다른 노드가 작업을 가져간 경우
+    private static class OwnershipLostException extends RuntimeException {
+        OwnershipLostException(Long jobId) {
+            super("bulk update job " + jobId + " is owned by another node");
+        }
+    }
+
+    private BulkUpdateJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("no bulk update job: " + jobId));
+    }
+}
@@ -0,0 +1,25 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import study.datajpa.cache.MemberCountCache;
+
+/**
+ * 벌크 연산(bulkAgePlus 등)은 영속성 컨텍스트를 무시하고 DB에 바로 update 쿼리를 날리므로 엔티티 이벤트가 없다.
+ * MemberRepository, MemberJpaRepository의 bulk* 메서드가 실행된 후 count 캐시를 갱신한다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MemberCountCacheAspect {
+
+    private final MemberCountCache countCache;
+
+    @AfterReturning("execution(* study.datajpa.repository.MemberRepository.bulk*(..))" +
+            " || execution(* study.datajpa.repository.MemberJpaRepository.bulk*(..))")
+    public void afterBulkUpdate() {
+        countCache.bulkUpdated();
+    }
+}
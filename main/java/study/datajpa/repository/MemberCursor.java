@@ -0,0 +1,141 @@
+package study.datajpa.repository;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.Sort;
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset(Seek) 페이징용 커서
+ *
+ * offset 방식은 앞 페이지의 row를 전부 읽고 버려야 하므로 뒤로 갈수록 느려진다.
+ * 커서는 마지막으로 읽은 row의 (정렬키, id)를 기억해 두었다가
+ * 다음 페이지를 "where (정렬키, id) > (마지막 값)" 조건으로 바로 찾아간다.
+ *
+ * - 정렬키가 같은 row가 여러 개일 수 있으므로 항상 id를 보조 정렬키로 사용한다. (페이지 간 정렬 순서가 흔들리지 않음)
+ * - 클라이언트에게는 Base64 문자열(opaque token)로만 노출한다. 내부 포맷은 언제든 바뀔 수 있다.
+ * - username이 null인 row는 비교 조건에 걸리지 않으므로 username 정렬에서는 첫 페이지부터 제외한다. (username is not null)
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MemberCursor {
+
+    public enum SortKey {
+        USERNAME("u", "username"),
+        AGE("a", "age");
+
+        private final String code;
+        private final String property;
+
+        SortKey(String code, String property) {
+            this.code = code;
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        static SortKey fromCode(String code) {
+            for (SortKey key : values()) {
+                if (key.code.equals(code)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("unknown sort key: " + code);
+        }
+
+        public static SortKey fromProperty(String property) {
+            for (SortKey key : values()) {
+                if (key.property.equalsIgnoreCase(property)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("unsupported keyset sort: " + property);
+        }
+    }
+
+    private static final String SEPARATOR = "|";
+
+    private final SortKey sortKey;
+    private final Sort.Direction direction;
+    private final Object lastValue;  // 마지막 row의 정렬키 값 (username 또는 age), 첫 페이지면 null
+    private final Long lastId;       // 마지막 row의 id, 첫 페이지면 null
+
+    private MemberCursor(SortKey sortKey, Sort.Direction direction, Object lastValue, Long lastId) {
+        this.sortKey = sortKey;
+        this.direction = direction;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * 첫 페이지 조회용 커서 (조건 없이 정렬 순서의 맨 앞부터 읽는다)
+     */
+    public static MemberCursor first(SortKey sortKey, Sort.Direction direction) {
+        return new MemberCursor(sortKey, direction, null, null);
+    }
+
+    /**
+     * 현재 페이지의 마지막 row로 다음 페이지 커서를 만든다.
+     */
+    public MemberCursor next(Member last) {
+        Object value = sortKey == SortKey.USERNAME ? last.getUsername() : (Object) last.getAge();
+        return new MemberCursor(sortKey, direction, value, last.getId());
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public boolean isAscending() {
+        return direction.isAscending();
+    }
+
+    public String encode() {
+        // 포맷: 정렬키|방향|id|값  (username에 '|'가 들어가도 되도록 값은 항상 마지막에 둔다)
+        String raw = sortKey.code + SEPARATOR
+                + (direction.isAscending() ? "a" : "d") + SEPARATOR
+                + (lastId == null ? "" : lastId) + SEPARATOR
+                + (lastValue == null ? "" : lastValue);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 변조되었거나 형식이 맞지 않는 토큰
+     */
+    public static MemberCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = raw.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("malformed cursor: " + token);
+        }
+
+        SortKey sortKey = SortKey.fromCode(parts[0]);
+        Sort.Direction direction = directionFromCode(parts[1]);
+        if (parts[2].isEmpty()) {
+            return first(sortKey, direction);
+        }
+
+        Long lastId = Long.valueOf(parts[2]);
+        Object lastValue = sortKey == SortKey.AGE ? (Object) Integer.valueOf(parts[3]) : parts[3];
+        return new MemberCursor(sortKey, direction, lastValue, lastId);
+    }
+
+    private static Sort.Direction directionFromCode(String code) {
+        switch (code) {
+            case "a":
+                return Sort.Direction.ASC;
+            case "d":
+                return Sort.Direction.DESC;
+            default:
+                throw new IllegalArgumentException("unknown sort direction: " + code);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package study.datajpa.repository;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 클라이언트가 고르는 회원 조회 fetch plan (?expand=team)
+ *
+ * @EntityGraph는 메서드마다 고정이라서 팀 정보가 필요 없는 요청도 join 비용을 낸다.
+ * expand로 받은 연관관계 이름을 화이트리스트로 검증한 뒤 실행 시점에 EntityGraph로 바꾼다. (MemberRepositoryImpl.findAllWithPlan)
+ * 화이트리스트 조합만 만들어질 수 있으므로 파싱 결과와 EntityGraph 캐시는 크기가 제한된다.
+ */
+@EqualsAndHashCode(of = "attributes")
+public final class MemberFetchPlan {
+
+    // 페이징과 함께 써도 안전한 ToOne 연관관계만 허용한다. (컬렉션 fetch join은 메모리 페이징이 된다)
+    private static final Set<String> EXPANDABLE = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList("team")));
+
+    public static final MemberFetchPlan NONE = new MemberFetchPlan(Collections.emptySortedSet());
+
+    private static final Map<String, MemberFetchPlan> PLANS = new ConcurrentHashMap<>();
+
+    private final SortedSet<String> attributes;
+
+    private MemberFetchPlan(SortedSet<String> attributes) {
+        this.attributes = Collections.unmodifiableSortedSet(attributes);
+    }
+
+    /**
+     * @param expand 쉼표로 구분한 연관관계 이름 ex. "team", null이나 빈 문자열이면 NONE
+     * @throws IllegalArgumentException 화이트리스트에 없는 이름
+     */
+    public static MemberFetchPlan parse(String expand) {
+        if (expand == null || expand.trim().isEmpty()) {
+            return NONE;
+        }
+        SortedSet<String> attributes = new TreeSet<>();
+        for (String attribute : expand.split(",")) {
+            String name = attribute.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!EXPANDABLE.contains(name)) {
+                throw new IllegalArgumentException("cannot expand '" + name + "', expandable: " + EXPANDABLE);
+            }
+            attributes.add(name);
+        }
+        if (attributes.isEmpty()) {
+            return NONE;
+        }
+        // 같은 조합은 같은 인스턴스를 돌려준다. (순서, 공백, 중복이 달라도 key가 같다)
+        return PLANS.computeIfAbsent(String.join(",", attributes), key -> new MemberFetchPlan(attributes));
+    }
+
+    public Set<String> getAttributes() {
+        return attributes;
+    }
+
+    public boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "expand=" + String.join(",", attributes);
+    }
+}
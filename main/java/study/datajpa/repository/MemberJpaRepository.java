@@ -1,6 +1,9 @@
 package study.datajpa.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.stereotype.Repository;
+import study.datajpa.cache.MemberCountCache;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
@@ -13,6 +16,12 @@ public class MemberJpaRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private MemberCountCache countCache;
+
+    @Autowired
+    private DateTimeProvider dateTimeProvider;  // Auditing과 같은 시계
+
     public Member save(Member member) {
         em.persist(member);
         return member;
@@ -33,8 +42,10 @@ public class MemberJpaRepository {
     }
 
     public long count() {
-        return em.createQuery("select count(m) from Member m", Long.class)
-                .getSingleResult();
+        String query = "select count(m) from Member m";
+        return countCache.count(query, Collections.emptyMap(), () ->
+                em.createQuery(query, Long.class)
+                        .getSingleResult());
     }
 
     public Member find(Long id) {
@@ -55,21 +66,50 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findByPage(int age, int offset, int limit) {
-        return em.createQuery("select m from Member m where m.age = :age order by m.username desc")
+        return em.createNamedQuery("Member.findByPage", Member.class)
                 .setParameter("age", age)
                 .setFirstResult(offset)
                 .setMaxResults(limit)
                 .getResultList();
     }
 
-    public long totalCount(int age) {
-        return em.createQuery("select count(m) from Member m where m.age = :age", Long.class)
+    /**
+     * findByPage의 keyset 버전
+     * offset 대신 이전 페이지 마지막 row의 (username, id)를 받아서 그 다음부터 limit 건을 조회한다.
+     * 첫 페이지는 lastUsername, lastId에 null을 넘긴다.
+     * username이 null인 회원은 비교 조건에 걸리지 않으므로 첫 페이지부터 제외한다.
+     */
+    public List<Member> findByPageKeyset(int age, String lastUsername, Long lastId, int limit) {
+        if (lastId == null) {
+            return em.createQuery("select m from Member m where m.age = :age and m.username is not null" +
+                            " order by m.username desc, m.id desc", Member.class)
+                    .setParameter("age", age)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery("select m from Member m where m.age = :age and m.username is not null" +
+                        " and (m.username < :username or (m.username = :username and m.id < :id))" +
+                        " order by m.username desc, m.id desc", Member.class)
                 .setParameter("age", age)
-                .getSingleResult();
+                .setParameter("username", lastUsername)
+                .setParameter("id", lastId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // 같은 age의 count는 회원 쓰기가 일어나기 전까지 캐시된 값을 쓴다. (MemberCountCache 참고)
+    public long totalCount(int age) {
+        String query = "select count(m) from Member m where m.age = :age";
+        return countCache.count(query, Collections.singletonMap("age", age), () ->
+                em.createQuery(query, Long.class)
+                        .setParameter("age", age)
+                        .getSingleResult());
     }
 
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        return em.createQuery("update Member m set m.age = m.age + 1, m.lastModifiedDate = :now, m.version = m.version + 1" +
+                        " where m.age >= :age")
+                .setParameter("now", dateTimeProvider.getNow().get())
                 .setParameter("age", age)
                 .executeUpdate();
     }
@@ -0,0 +1,170 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collector;
+
+/**
+ * 회원 전체를 id 범위로 나눠서 병렬로 집계한다.
+ *
+ * findAll()로 전체를 한 스레드, 한 영속성 컨텍스트에 올리는 대신
+ * - id 범위를 partition으로 나눠 ForkJoinPool 작업자에게 나눠주고
+ * - 각 partition은 자기 EntityManager + 읽기 전용 트랜잭션에서 chunkSize 건씩 읽고 clear 한다.
+ * - 집계는 java.util.stream.Collector로 받는다. (supplier: partition별 부분 결과, accumulator: 집계, combiner: 부분 결과 병합)
+ *
+ * 동시에 여는 EntityManager(= 커넥션) 수는 parallelism 으로 제한되므로 커넥션 풀 크기보다 작게 설정한다.
+ * 주의 : accumulator에 넘어오는 회원은 partition이 끝나면 준영속 상태가 되므로 결과에 엔티티를 담으면 안된다. (팀은 fetch join으로 함께 조회한다)
+ */
+@Slf4j
+@Component
+public class MemberPartitionedScanner {
+
+    private static final String RANGE_QUERY = "select m from Member m left join fetch m.team" +
+            " where m.id >= :fromId and m.id < :toId and m.id > :lastId order by m.id";
+
+    private final EntityManagerFactory emf;
+    private final int parallelism;
+    private final int partitionsPerWorker;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final Semaphore connections;
+
+    public MemberPartitionedScanner(EntityManagerFactory emf,
+                                    @Value("${datajpa.scan.parallelism:4}") int parallelism,
+                                    @Value("${datajpa.scan.partitions-per-worker:4}") int partitionsPerWorker,
+                                    @Value("${datajpa.scan.chunk-size:500}") int chunkSize) {
+        this.emf = emf;
+        this.parallelism = Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors()));
+        this.partitionsPerWorker = partitionsPerWorker;
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(this.parallelism);
+        // join 도중 ForkJoinPool이 보상 스레드를 만들 수 있으므로 커넥션 수는 따로 제한한다.
+        this.connections = new Semaphore(this.parallelism);
+    }
+
+    /**
+     * ex. scan(Collectors.groupingBy(m -> m.getAge() / 10 * 10, Collectors.counting()))
+     */
+    public <A, R> R scan(Collector<? super Member, A, R> collector) {
+        long[] range = idRange();
+        if (range == null) {
+            return finish(collector, collector.supplier().get());
+        }
+        int partitions = parallelism * partitionsPerWorker;
+        long partitionSize = Math.max(1, (range[1] - range[0] + partitions) / partitions);
+        A result = pool.invoke(new PartitionTask<>(collector, range[0], range[1] + 1, partitionSize));
+        return finish(collector, result);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private long[] idRange() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Object[] minMax = em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class)
+                    .getSingleResult();
+            if (minMax[0] == null) {
+                return null;
+            }
+            return new long[]{(Long) minMax[0], (Long) minMax[1]};
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * [fromId, toId) 하나를 자기 EntityManager, 읽기 전용 트랜잭션에서 집계한다.
+     */
+    private <A> A scanPartition(Collector<? super Member, A, ?> collector, long fromId, long toId) {
+        A container = collector.supplier().get();
+        connections.acquireUninterruptibly();
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);   // 스냅샷을 만들지 않는다.
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            em.getTransaction().begin();
+            session.doWork(connection -> connection.setReadOnly(true));
+
+            long lastId = fromId - 1;
+            List<Member> chunk;
+            do {
+                chunk = em.createQuery(RANGE_QUERY, Member.class)
+                        .setParameter("fromId", fromId)
+                        .setParameter("toId", toId)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(chunkSize)
+                        .getResultList();
+                for (Member member : chunk) {
+                    collector.accumulator().accept(container, member);
+                }
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.get(chunk.size() - 1).getId();
+                }
+                em.clear(); // 영속성 컨텍스트에는 chunkSize 건까지만 올라간다.
+            } while (chunk.size() == chunkSize);
+
+            return container;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback(); // 읽기만 했으므로 커밋할 것이 없다.
+            }
+            em.close();
+            connections.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A, R> R finish(Collector<?, A, R> collector, A container) {
+        if (collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (R) container;
+        }
+        return collector.finisher().apply(container);
+    }
+
+    /**
+     * 범위가 partitionSize 이하가 될 때까지 반으로 나눈다. (ForkJoinPool이 놀고 있는 작업자에게 나머지 절반을 훔쳐가게 한다)
+     */
+    private class PartitionTask<A> extends RecursiveTask<A> {
+
+        private final Collector<? super Member, A, ?> collector;
+        private final long fromId;
+        private final long toId;
+        private final long partitionSize;
+
+        PartitionTask(Collector<? super Member, A, ?> collector, long fromId, long toId, long partitionSize) {
+            this.collector = collector;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected A compute() {
+            if (toId - fromId <= partitionSize) {
+                return scanPartition(collector, fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            PartitionTask<A> left = new PartitionTask<>(collector, fromId, middle, partitionSize);
+            PartitionTask<A> right = new PartitionTask<>(collector, middle, toId, partitionSize);
+            left.fork();
+            A rightResult = right.compute();
+            return collector.combiner().apply(left.join(), rightResult);
+        }
+    }
+}
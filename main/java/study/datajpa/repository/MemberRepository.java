@@ -6,6 +6,8 @@ import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSummary;
+import study.datajpa.dto.MemberVersion;
 import study.datajpa.entity.Member;
 
 import javax.persistence.LockModeType;
@@ -46,6 +48,16 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
 //    위 어노테이션 없어도 잘 동작한다. 기본적으로 JpaRepository 제네릭 타입으로 적어준 "Member.메서드명"을 찾아주기 때문
 //    실무에서 NamedQuery를 직접 등록하여 사용하는 일은 드물다.
 //    대신, @Query를 사용해서 리포지토리 메소드에 쿼리를 직접 정의한다.(findUser 메서드 참고)
+    /**
+     * 쿼리 캐시 (org.hibernate.cacheable)
+     * - username 조회는 가장 많이 호출되는 읽기 경로라서 조회 결과(회원 id 목록)를 캐시한다.
+     * - 엔티티 자체는 2차 캐시(member region)에서 꺼내므로, 같은 username을 다시 조회하면 DB에 가지 않는다.
+     * - member 테이블에 쓰기(벌크 연산 포함)가 일어나면 하이버네이트가 해당 쿼리 캐시를 무효화한다.
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "query.member-by-username")
+    })
     List<Member> findByUsername(@Param("username") String username);
 
     /**
@@ -68,13 +80,49 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
+    /**
+     * @Query, DTO 페이징 조회 - 엔티티 없이 필요한 컬럼(id, username)만 조회한다.
+     * findAll(pageable).map(MemberDto::new) 처럼 엔티티를 영속성 컨텍스트에 올렸다가(스냅샷 포함) 버리지 않는다.
+     * Pageable의 sort는 select 절이 아니라 from 절의 alias(m) 기준으로 붙는다. (ex. sort=username -> order by m.username)
+     */
+    @Query(value = "select new study.datajpa.dto.MemberDto(m.id, m.username) from Member m",
+            countQuery = "select count(m) from Member m")
+    Page<MemberDto> findMemberDtoPage(Pageable pageable);
+
+    // 팀 소속 회원 DTO 페이징 (MemberAsyncRepository에서 팀 통계와 동시에 조회)
+    @Query(value = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t where t.id = :teamId",
+            countQuery = "select count(m) from Member m where m.team.id = :teamId")
+    Page<MemberDto> findMemberDtoPageByTeamId(@Param("teamId") Long teamId, Pageable pageable);
+
+    // 목록 페이지의 (id, 수정 시각) - 같은 Pageable의 findMemberDtoPage와 같은 row를 같은 순서로 조회한다. (Slice라서 count 쿼리 X)
+    @Query("select m.id as id, m.lastModifiedDate as lastModifiedDate, t.updatedDate as teamUpdatedDate" +
+            " from Member m left join m.team t")
+    Slice<MemberVersion> findVersions(Pageable pageable);
+
+    // 인터페이스 기반 Projection - select 절의 alias와 MemberSummary의 getter 이름을 맞춘다.
+    @Query("select m.id as id, m.username as username, m.age as age, t.name as teamName" +
+            " from Member m left join m.team t where m.age = :age")
+    List<MemberSummary> findSummaryByAge(@Param("age") int age);
+
     // in절
     @Query("select m from Member m where m.username in :names")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "query.member-by-username")
+    })  // 쿼리 캐시 (findByUsername 참고)
     List<Member> findByNames(@Param("names") Collection<String> names);
 
     // SpringDataJpa가 반환타입을 유연하게 사용하는 것을 지원한다.
     List<Member> findListByUsername(String username);   // 컬렉션
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "query.member-by-username")
+    })
     Member findMemberByUsername(String username);   // 단건
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "query.member-by-username")
+    })
     Optional<Member> findOptionalByUsername(String username);   // 단건 Optional
 
     // 실무에서 매우 중요!! 카운트 쿼리를 분리할 수 있다.(SQL로 페이징할 때 가장 큰 문제는 count이다. 무거운 작업)
@@ -84,10 +132,29 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Page<Member> findByAge(int age, Pageable pageable);
     // Slice<Member> findByAge(int age, Pageable pageable);    // Slice는 totalCount 쿼리가 날라가지 않는다.
 
+    // 벌크 연산은 Auditing, @Version이 동작하지 않으므로 lastModifiedDate, version을 직접 갱신한다.
+    // (ETag가 바뀌고, 이 회원을 먼저 읽어둔 트랜잭션의 변경은 낙관적 락 충돌이 되도록)
+    // lastModifiedDate는 Auditing과 같은 시계(auditingDateTimeProvider)의 값을 파라미터로 넘긴다.
     @Modifying(clearAutomatically = true)  // executeUpdate 역할
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    @Query("update Member m set m.age = m.age + 1, m.lastModifiedDate = :#{@auditingDateTimeProvider.now.get()}, m.version = m.version + 1" +
+            " where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
 
+    /**
+     * bulkAgePlus를 id 구간 [fromId, toId) 로 제한한 버전 (MemberBulkUpdater가 slice 단위로 호출한다)
+     * 한 번에 잠그는 row 수가 구간 크기로 제한되고, 각 row는 정확히 한 구간에만 속하므로 두 번 증가하지 않는다.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Member m set m.age = m.age + 1, m.lastModifiedDate = :#{@auditingDateTimeProvider.now.get()}, m.version = m.version + 1" +
+            " where m.age >= :age and m.id >= :fromId and m.id < :toId")
+    int bulkAgePlusInRange(@Param("age") int age, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("select min(m.id) from Member m")
+    Long findMinId();
+
+    @Query("select max(m.id) from Member m")
+    Long findMaxId();
+
     @Query("select m from Member m left join fetch m.team")
     List<Member> findMemberFetchJoin();
 
@@ -112,6 +179,10 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
+    /**
+     * 비관적 락 (select ... for update) - 읽는 순간부터 커밋까지 다른 쓰기가 대기한다.
+     * 충돌이 드물면 락 없이 읽고 Member.version으로 충돌을 감지해서 재시도하는 쪽이 처리량이 높다. (OptimisticLockRetry 참고)
+     */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String username);
 }
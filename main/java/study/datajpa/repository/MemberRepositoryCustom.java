@@ -1,8 +1,12 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * 순수한 JPA, Mybatis, Jdbc template, Querydsl 등을 쓰고 싶을 때 다음과 같은 custom interface를 만든다.
@@ -18,4 +22,54 @@ import java.util.*;
  */
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    /**
+     * Keyset(Seek) 페이징
+     * 첫 페이지는 MemberCursor.first(...)로, 다음 페이지부터는 이전 결과의 next 토큰을 decode 해서 넘긴다.
+     */
+    KeysetSlice<Member> findAllByKeyset(MemberCursor cursor, int size);
+
+    // findByAge의 keyset 버전 (age가 같은 회원들 안에서 cursor 정렬)
+    KeysetSlice<Member> findByAgeKeyset(int age, MemberCursor cursor, int size);
+
+    /**
+     * findByAge와 같지만 count 쿼리 결과를 MemberCountCache에 캐시한다.
+     * 회원 쓰기가 없는 동안에는 페이지를 넘겨도 count 쿼리가 다시 나가지 않는다.
+     */
+    Page<Member> findByAgeWithCachedCount(int age, Pageable pageable);
+
+    /**
+     * 전체 회원 페이징 - 연관관계를 함께 가져올지 호출하는 쪽이 plan으로 고른다. (MemberFetchPlan 참고)
+     * MemberRepository.findAll(Pageable)은 @EntityGraph로 team을 항상 join 하지만, 여기서는 요청한 경우에만 join 한다.
+     */
+    Page<Member> findAllWithPlan(MemberFetchPlan plan, Pageable pageable);
+
+    // 전체 회원 수 (MemberCountCache에 캐시된 값, 회원 쓰기가 없으면 count 쿼리 X)
+    long countCached();
+
+    /**
+     * 전체 회원을 DTO로 한 건씩 흘려보낸다. (getResultList()처럼 전체를 메모리에 올리지 않는다)
+     *
+     * - 반드시 트랜잭션 안에서 사용하고, 다 쓴 Stream은 close 해야 한다. (try-with-resources)
+     * - fetchSize 만큼씩 JDBC 드라이버가 DB에서 읽어온다.
+     */
+    Stream<MemberDto> streamMemberDto(int fetchSize);
+
+    /**
+     * 대량 저장 - save()를 건마다 호출하는 대신 batchSize 단위로 JDBC batch insert 한다. (BatchInsertSupport 참고)
+     * members는 한 건씩 순회하면서 저장하므로, 요청 body를 스트리밍으로 파싱한 Iterable을 넘기면 전체를 메모리에 올리지 않는다.
+     * @return 저장한 건수
+     */
+    int saveAllBatched(Iterable<Member> members, int batchSize);
+
+    /**
+     * bulkAgePlus와 같은 결과지만 영속성 컨텍스트와 2차 캐시를 통째로 비우지 않는다.
+     *
+     * bulkAgePlus는 clearAutomatically = true라서 이 트랜잭션에서 관리하던 엔티티를 전부 버리고,
+     * JPQL 벌크 연산이라 하이버네이트가 member 2차 캐시 region 전체를 비운다.
+     * 여기서는 대상 회원 id를 먼저 구해서 그 회원들만 update 하고, 영속성 컨텍스트에서는 그 회원들만 refresh,
+     * 2차 캐시에서는 그 id만 evict 한다. (변경 전 flush 하므로 아직 반영 안된 변경도 잃어버리지 않는다)
+     * @return 변경된 회원 수
+     */
+    int bulkAgePlusTargeted(int age);
 }
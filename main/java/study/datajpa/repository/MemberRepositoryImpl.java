@@ -1,10 +1,38 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.cache.MemberCountCache;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
+import static org.hibernate.jpa.QueryHints.HINT_FETCHGRAPH;
 
 /**
  * ※ 클래스 명명 규칙 - 인터페이스명(여기서는 MemberRepository) + Impl
@@ -14,6 +42,16 @@ import java.util.List;
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final EntityManager em;
+    private final MemberCountCache countCache;
+    private final DateTimeProvider dateTimeProvider;    // Auditing과 같은 시계 (벌크 연산의 lastModifiedDate)
+
+    private static final int TARGETED_UPDATE_CHUNK = 1000;   // in 절 하나에 넣는 id 수
+    private static final int TARGETED_EVICT_LIMIT = 10000;   // 이보다 많으면 id별 evict 대신 region 전체를 비운다.
+    // 어떤 엔티티 테이블과도 겹치지 않는 query space - 네이티브 update에 지정해서 하이버네이트가 2차 캐시 region 전체를 비우지 않게 한다.
+    private static final String TARGETED_BULK_SPACE = "member_targeted_bulk";
+
+    // fetch plan -> EntityGraph (같은 조합은 한 번만 만든다. EntityGraph는 세션에 묶이지 않으므로 공유해도 된다)
+    private final Map<MemberFetchPlan, EntityGraph<Member>> fetchGraphs = new ConcurrentHashMap<>();
 
     /* @RequiredArgsConstructor이 있으면 생략 가능
     public MemberRepositoryImpl(EntityManager em) {
@@ -26,4 +64,189 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    @Override
+    public Page<Member> findByAgeWithCachedCount(int age, Pageable pageable) {
+        String jpql = QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m");
+        List<Member> content = em.createQuery(jpql, Member.class)
+                .setParameter("age", age)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        // 첫 페이지인데 content가 size보다 적거나, 마지막 페이지면 count 쿼리 자체를 생략한다.
+        String countQuery = "select count(m) from Member m where m.age = :age";
+        return PageableExecutionUtils.getPage(content, pageable, () ->
+                countCache.count(countQuery, Collections.singletonMap("age", age), () ->
+                        em.createQuery(countQuery, Long.class)
+                                .setParameter("age", age)
+                                .getSingleResult()));
+    }
+
+    @Override
+    public Page<Member> findAllWithPlan(MemberFetchPlan plan, Pageable pageable) {
+        TypedQuery<Member> query = em.createQuery(QueryUtils.applySorting("select m from Member m", pageable.getSort(), "m"), Member.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+        if (!plan.isEmpty()) {
+            query.setHint(HINT_FETCHGRAPH, fetchGraph(plan));
+        }
+        List<Member> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, this::countCached);
+    }
+
+    @Override
+    public long countCached() {
+        String countQuery = "select count(m) from Member m";
+        return countCache.count(countQuery, Collections.emptyMap(), () ->
+                em.createQuery(countQuery, Long.class).getSingleResult());
+    }
+
+    private EntityGraph<Member> fetchGraph(MemberFetchPlan plan) {
+        return fetchGraphs.computeIfAbsent(plan, key -> {
+            EntityGraph<Member> graph = em.createEntityGraph(Member.class);
+            graph.addAttributeNodes(key.getAttributes().toArray(new String[0]));
+            return graph;
+        });
+    }
+
+    /**
+     * 엔티티가 아니라 DTO(생성자 표현식)로 조회하므로 영속성 컨텍스트에 쌓이는 것이 없다.
+     * (엔티티로 스트리밍하면 한 건씩 detach 해줘야 하는데, DTO는 애초에 관리 대상이 아니다)
+     * getResultStream()은 하이버네이트 내부에서 FORWARD_ONLY ScrollableResults로 동작한다.
+     */
+    @Override
+    public Stream<MemberDto> streamMemberDto(int fetchSize) {
+        return em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t", MemberDto.class)
+                .setHint(FETCH_SIZE, fetchSize)
+                .setHint(READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    @Transactional
+    public int saveAllBatched(Iterable<Member> members, int batchSize) {
+        return BatchInsertSupport.persistInBatches(em, members, batchSize);
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlusTargeted(int age) {
+        em.flush(); // refresh 할 때 아직 반영 안된 변경을 잃어버리지 않도록 먼저 flush
+
+        List<Long> ids = em.createQuery("select m.id from Member m where m.age >= :age", Long.class)
+                .setParameter("age", age)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        Serializable[] spaces = factory.getMetamodel().entityPersister(Member.class).getQuerySpaces();
+        String[] memberSpaces = Arrays.copyOf(spaces, spaces.length, String[].class);   // TimestampsCache는 String[]를 받는다.
+        TimestampsCache timestamps = factory.getCache().getTimestampsCache();
+        timestamps.preInvalidate(memberSpaces, session);   // member 테이블을 쓰는 쿼리 캐시 결과는 커밋 전까지 쓰지 않는다.
+
+        // 조회한 id만 update 한다. (그 사이 조건에 맞게 된 다른 회원은 대상이 아니다 -> evict/refresh 대상과 정확히 일치)
+        Object now = dateTimeProvider.getNow().get();
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += TARGETED_UPDATE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + TARGETED_UPDATE_CHUNK, ids.size()));
+            updated += em.createNativeQuery("update member set age = age + 1, last_modified_date = :now, version = version + 1" +
+                            " where member_id in (:ids) and age >= :age")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(TARGETED_BULK_SPACE)
+                    .setParameter("now", now)
+                    .setParameter("ids", chunk)
+                    .setParameter("age", age)
+                    .executeUpdate();
+        }
+
+        // 2차 캐시 : 지금 지우고, 커밋 전에 다른 트랜잭션이 예전 값을 다시 넣었을 수 있으므로 트랜잭션이 끝난 뒤 한 번 더 지운다.
+        evictFromSecondLevelCache(ids);
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            timestamps.invalidate(memberSpaces, completedSession);
+            evictFromSecondLevelCache(ids);
+        });
+
+        // 영속성 컨텍스트 : 변경된 회원만 DB에서 다시 읽는다. 나머지 엔티티와 그 변경 내역은 그대로 유지된다.
+        Set<Long> updatedIds = new HashSet<>(ids);
+        List<Member> stale = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member && updatedIds.contains(((Member) entry.getKey()).getId())) {
+                stale.add((Member) entry.getKey());
+            }
+        }
+        stale.forEach(em::refresh);
+
+        // 엔티티 이벤트가 없으므로 count 캐시, 팀 통계는 직접 갱신한다.
+        countCache.bulkUpdated();
+        session.doWork(connection -> TeamStatsSql.recomputeTeamsWithAgeAtLeast(connection, age + 1));
+        return updated;
+    }
+
+    private void evictFromSecondLevelCache(List<Long> ids) {
+        if (ids.size() > TARGETED_EVICT_LIMIT) {
+            em.getEntityManagerFactory().getCache().evict(Member.class);
+            return;
+        }
+        for (Long id : ids) {
+            em.getEntityManagerFactory().getCache().evict(Member.class, id);
+        }
+    }
+
+    @Override
+    public KeysetSlice<Member> findAllByKeyset(MemberCursor cursor, int size) {
+        return findKeyset(null, cursor, size);
+    }
+
+    @Override
+    public KeysetSlice<Member> findByAgeKeyset(int age, MemberCursor cursor, int size) {
+        return findKeyset(age, cursor, size);
+    }
+
+    /**
+     * offset을 쓰지 않고 "마지막으로 읽은 (정렬키, id) 다음부터" 조회한다.
+     * (정렬키, id) 인덱스를 타면 몇 번째 페이지든 인덱스 탐색 + size 건 읽기로 끝난다.
+     *
+     * size + 1 건을 조회해서 다음 페이지 존재 여부를 판단한다. (count 쿼리 X)
+     */
+    private KeysetSlice<Member> findKeyset(Integer age, MemberCursor cursor, int size) {
+        String property = "m." + cursor.getSortKey().getProperty();
+        String op = cursor.isAscending() ? ">" : "<";
+        String direction = cursor.isAscending() ? "asc" : "desc";
+
+        StringBuilder jpql = new StringBuilder("select m from Member m where 1 = 1");
+        if (age != null) {
+            jpql.append(" and m.age = :age");
+        }
+        if (cursor.getSortKey() == MemberCursor.SortKey.USERNAME) {
+            jpql.append(" and m.username is not null");    // 어느 페이지에서도 비교할 수 없으므로 첫 페이지부터 뺀다.
+        }
+        if (!cursor.isFirst()) {
+            jpql.append(" and (").append(property).append(" ").append(op).append(" :lastValue")
+                    .append(" or (").append(property).append(" = :lastValue and m.id ").append(op).append(" :lastId))");
+        }
+        jpql.append(" order by ").append(property).append(" ").append(direction)
+                .append(", m.id ").append(direction);
+
+        TypedQuery<Member> query = em.createQuery(jpql.toString(), Member.class)
+                .setMaxResults(size + 1);
+        if (age != null) {
+            query.setParameter("age", age);
+        }
+        if (!cursor.isFirst()) {
+            query.setParameter("lastValue", cursor.getLastValue());
+            query.setParameter("lastId", cursor.getLastId());
+        }
+
+        List<Member> result = query.getResultList();
+        boolean hasNext = result.size() > size;
+        List<Member> content = hasNext ? result.subList(0, size) : result;
+        String next = hasNext ? cursor.next(content.get(content.size() - 1)).encode() : null;
+        return new KeysetSlice<>(content, size, hasNext, next);
+    }
 }
@@ -0,0 +1,13 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+
+/**
+ * 회원 하나를 처리하는 작업 (MemberTaskWorkers 참고)
+ * complete와 같은 트랜잭션에서 실행되므로, 처리 중 lease를 잃으면 여기서 바꾼 내용도 롤백된다.
+ */
+@FunctionalInterface
+public interface MemberTaskHandler {
+
+    void process(Member member);
+}
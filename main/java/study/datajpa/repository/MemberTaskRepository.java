@@ -0,0 +1,9 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import study.datajpa.entity.MemberTask;
+
+public interface MemberTaskRepository extends JpaRepository<MemberTask, Long>, MemberTaskRepositoryCustom {
+
+    long countByStatus(MemberTask.Status status);
+}
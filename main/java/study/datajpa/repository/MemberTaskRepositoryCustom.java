@@ -0,0 +1,41 @@
+package study.datajpa.repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 회원 작업 나눠 갖기 (MemberTask lease 테이블)
+ *
+ * findLockByUsername처럼 잠금을 잡고 처리하는 동안 기다리게 하지 않는다.
+ * 작업자는 짧은 트랜잭션으로 작업 N개에 자기 이름(owner)과 lease 만료 시각을 적고 바로 커밋한 뒤,
+ * 잠금 없이 처리하고 complete로 끝낸다. 다른 작업자는 이미 누가 가져간 작업을 건너뛰고 다음 작업을 가져간다.
+ */
+public interface MemberTaskRepositoryCustom {
+
+    /**
+     * 가져갈 수 있는 작업(PENDING 또는 lease가 끝난 CLAIMED)을 최대 limit개 가져간다. 가져갈 때마다 attempts + 1
+     * - DB가 SKIP LOCKED를 지원하면 select ... for update skip locked 로 다른 작업자가 고르고 있는 row를 건너뛴다.
+     * - 지원하지 않으면(H2 등) 후보를 넉넉히 읽어서 섞은 뒤 조건부 update로 가져간다. 다른 작업자가 먼저 가져간 row는 update 되지 않는다.
+     * @return 이번에 가져간 회원 id
+     */
+    List<Long> claim(String owner, int limit, Duration lease, int maxAttempts);
+
+    // 처리 중인 작업의 lease 연장 @return 연장된 작업 수 (그 사이 끝낸 작업도 빠지므로 잃은 작업은 countLost로 센다)
+    int renew(String owner, Collection<Long> memberIds, Duration lease);
+
+    // owner가 가져갔던 작업 중 다른 작업자가 가져갔거나 FAILED가 된 작업 수 (lease를 잃은 작업)
+    int countLost(String owner, Collection<Long> memberIds);
+
+    // 처리 완료 @return false 이면 lease를 잃어서 다른 작업자가 가져간 작업 (처리 결과를 버려야 한다)
+    boolean complete(String owner, Long memberId);
+
+    // 처리 실패, 중단 - 다른 작업자가 바로 가져갈 수 있게 PENDING으로 되돌린다.
+    boolean release(String owner, Long memberId);
+
+    // maxAttempts 번 가져갔는데 끝나지 않은 작업을 FAILED로 @return 바뀐 작업 수
+    int failExhausted(int maxAttempts);
+
+    // 작업이 없는 회원의 작업을 만들고, 끝난(DONE, FAILED) 작업은 다시 PENDING으로 @return 새로 처리할 작업 수
+    int enqueueAll();
+}
@@ -0,0 +1,188 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.LockOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.MemberTask;
+import study.datajpa.entity.MemberTask.Status;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class MemberTaskRepositoryImpl implements MemberTaskRepositoryCustom {
+
+    // 가져갈 수 있는 작업 : 아무도 안 가져갔거나, 가져간 작업자가 lease 안에 끝내지도 연장하지도 못했다. (노드가 죽었다)
+    // lease는 노드마다 다른 JVM 시계가 아니라 DB 시계로 적고 비교한다. (DatabaseClock 참고)
+    private static final String CLAIMABLE = "(t.status = :pending or (t.status = :claimed and t.leaseUntil < current_timestamp))" +
+            " and t.attempts < :maxAttempts";
+    private static final int CANDIDATE_FACTOR = 4;  // SKIP LOCKED가 없을 때 limit의 몇 배를 후보로 읽을지
+
+    private final EntityManager em;
+    private final DatabaseClock clock;
+    private volatile Boolean skipLocked;
+
+    @Override
+    @Transactional
+    public List<Long> claim(String owner, int limit, Duration lease, int maxAttempts) {
+        boolean skipLocked = supportsSkipLocked();
+        List<Long> candidates = skipLocked
+                ? lockCandidates(limit, maxAttempts)
+                : pickCandidates(limit, maxAttempts);
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        LocalDateTime until = clock.now().plus(lease).truncatedTo(ChronoUnit.MILLIS);  // 아래에서 = 로 비교하므로 DB 정밀도에 맞춘다.
+        em.createQuery("update MemberTask t set t.status = :claimed, t.owner = :owner, t.leaseUntil = :until," +
+                        " t.attempts = t.attempts + 1 where t.memberId in :ids and " + CLAIMABLE)
+                .setParameter("owner", owner)
+                .setParameter("until", until)
+                .setParameter("ids", candidates)
+                .setParameter("pending", Status.PENDING)
+                .setParameter("claimed", Status.CLAIMED)
+                .setParameter("maxAttempts", maxAttempts)
+                .executeUpdate();
+        if (skipLocked) {
+            return candidates;  // 이미 이 트랜잭션이 잠근 row라서 전부 update 되었다.
+        }
+        // 후보 중 다른 작업자가 먼저 가져간 row는 update 되지 않았으므로 실제로 가져간 것만 다시 조회한다.
+        return em.createQuery("select t.memberId from MemberTask t" +
+                        " where t.memberId in :ids and t.owner = :owner and t.leaseUntil = :until and t.status = :claimed" +
+                        " order by t.memberId", Long.class)
+                .setParameter("ids", candidates)
+                .setParameter("owner", owner)
+                .setParameter("until", until)
+                .setParameter("claimed", Status.CLAIMED)
+                .getResultList();
+    }
+
+    // select ... for update skip locked - 다른 작업자가 고르는 중인 row는 기다리지 않고 건너뛴다.
+    private List<Long> lockCandidates(int limit, int maxAttempts) {
+        return em.createQuery("select t from MemberTask t where " + CLAIMABLE + " order by t.memberId", MemberTask.class)
+                .setParameter("pending", Status.PENDING)
+                .setParameter("claimed", Status.CLAIMED)
+                .setParameter("maxAttempts", maxAttempts)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(MemberTask::getMemberId)
+                .collect(Collectors.toList());
+    }
+
+    // 작업자들이 모두 같은 앞쪽 row를 두고 다투지 않도록 후보를 넉넉히 읽어서 섞는다.
+    private List<Long> pickCandidates(int limit, int maxAttempts) {
+        List<Long> candidates = new ArrayList<>(em.createQuery("select t.memberId from MemberTask t where " + CLAIMABLE +
+                        " order by t.memberId", Long.class)
+                .setParameter("pending", Status.PENDING)
+                .setParameter("claimed", Status.CLAIMED)
+                .setParameter("maxAttempts", maxAttempts)
+                .setMaxResults(limit * CANDIDATE_FACTOR)
+                .getResultList());
+        Collections.shuffle(candidates);
+        return candidates.size() > limit ? candidates.subList(0, limit) : candidates;
+    }
+
+    private boolean supportsSkipLocked() {
+        if (skipLocked == null) {
+            skipLocked = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect().supportsSkipLocked();
+        }
+        return skipLocked;
+    }
+
+    @Override
+    @Transactional
+    public int renew(String owner, Collection<Long> memberIds, Duration lease) {
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("update MemberTask t set t.leaseUntil = :until" +
+                        " where t.memberId in :ids and t.owner = :owner and t.status = :claimed")
+                .setParameter("until", clock.now().plus(lease))
+                .setParameter("ids", memberIds)
+                .setParameter("owner", owner)
+                .setParameter("claimed", Status.CLAIMED)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int countLost(String owner, Collection<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+        // 끝낸(DONE) 작업, 스스로 되돌린(PENDING) 작업은 잃은 것이 아니다.
+        return em.createQuery("select count(t) from MemberTask t where t.memberId in :ids" +
+                        " and ((t.status = :claimed and t.owner <> :owner) or t.status = :failed)", Long.class)
+                .setParameter("ids", memberIds)
+                .setParameter("owner", owner)
+                .setParameter("claimed", Status.CLAIMED)
+                .setParameter("failed", Status.FAILED)
+                .getSingleResult()
+                .intValue();
+    }
+
+    @Override
+    @Transactional
+    public boolean complete(String owner, Long memberId) {
+        return finish(owner, memberId, Status.DONE) == 1;
+    }
+
+    @Override
+    @Transactional
+    public boolean release(String owner, Long memberId) {
+        return finish(owner, memberId, Status.PENDING) == 1;
+    }
+
+    private int finish(String owner, Long memberId, Status status) {
+        return em.createQuery("update MemberTask t set t.status = :status, t.owner = null, t.leaseUntil = null" +
+                        " where t.memberId = :memberId and t.owner = :owner and t.status = :claimed")
+                .setParameter("status", status)
+                .setParameter("memberId", memberId)
+                .setParameter("owner", owner)
+                .setParameter("claimed", Status.CLAIMED)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int failExhausted(int maxAttempts) {
+        return em.createQuery("update MemberTask t set t.status = :failed, t.owner = null, t.leaseUntil = null" +
+                        " where (t.status = :pending or (t.status = :claimed and t.leaseUntil < current_timestamp)) and t.attempts >= :maxAttempts")
+                .setParameter("failed", Status.FAILED)
+                .setParameter("pending", Status.PENDING)
+                .setParameter("claimed", Status.CLAIMED)
+                .setParameter("maxAttempts", maxAttempts)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int enqueueAll() {
+        int reset = em.createQuery("update MemberTask t set t.status = :pending, t.attempts = 0, t.owner = null, t.leaseUntil = null" +
+                        " where t.status in :finished")
+                .setParameter("pending", Status.PENDING)
+                .setParameter("finished", List.of(Status.DONE, Status.FAILED))
+                .executeUpdate();
+        // member_task만 바뀌므로 다른 2차 캐시 region은 건드리지 않는다. (MemberRepositoryImpl.TARGETED_BULK_SPACE 참고)
+        int inserted = em.createNativeQuery("insert into member_task (member_id, status, attempts)" +
+                        " select m.member_id, 'PENDING', 0 from member m" +
+                        " where not exists (select 1 from member_task t where t.member_id = m.member_id)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(MemberTask.class)
+                .executeUpdate();
+        return reset + inserted;
+    }
+}
@@ -0,0 +1,212 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MemberTask를 가져가서 처리하는 작업자 풀
+ *
+ * 작업자마다 claim(claim-size개) -> 한 건씩 처리 + complete (건마다 트랜잭션 하나) -> 다시 claim 을 반복한다.
+ * 작업자끼리는 잠금을 기다리지 않으므로 (claim 트랜잭션은 짧고, 처리 중에는 잠금이 없다) 작업자 수만큼 처리량이 늘어난다.
+ * 노드를 여러 대 띄우면 같은 테이블에서 나눠 가진다. (owner = 노드 id + 작업자 번호)
+ *
+ * - lease 연장 : lease-seconds / 3 마다 들고 있는 작업의 lease를 연장한다.
+ * - 노드가 죽으면 연장이 멈추므로 lease가 끝난 작업을 다른 노드의 작업자가 가져간다. (MemberTaskRepositoryCustom.claim)
+ * - 처리하다 예외가 나면 PENDING으로 되돌리고, max-attempts 번 가져가도 끝나지 않으면 FAILED로 뺀다.
+ */
+@Slf4j
+@Component
+public class MemberTaskWorkers {
+
+    private final MemberTaskRepository taskRepository;
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate tx;
+    private final String nodeId;
+    private final int claimSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long idlePollMillis;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "member-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService leaseKeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-task-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MemberTaskWorkers(MemberTaskRepository taskRepository,
+                             MemberRepository memberRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${datajpa.member-task.node-id:}") String nodeId,
+                             @Value("${datajpa.member-task.claim-size:20}") int claimSize,
+                             @Value("${datajpa.member-task.lease-seconds:30}") long leaseSeconds,
+                             @Value("${datajpa.member-task.max-attempts:5}") int maxAttempts,
+                             @Value("${datajpa.member-task.idle-poll-ms:500}") long idlePollMillis) {
+        this.taskRepository = taskRepository;
+        this.memberRepository = memberRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.nodeId = NodeIds.resolve(nodeId);
+        this.claimSize = claimSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = maxAttempts;
+        this.idlePollMillis = idlePollMillis;
+    }
+
+    /**
+     * 작업자 workers개를 띄운다. 처리할 작업이 없으면 idle-poll-ms 마다 다시 확인하고, stop() 할 때까지 계속 돈다.
+     */
+    public Running start(int workers, MemberTaskHandler handler) {
+        Running running = new Running();
+        for (int i = 0; i < workers; i++) {
+            String owner = nodeId + "-" + i;
+            running.held.put(owner, ConcurrentHashMap.newKeySet());
+            running.futures.add(CompletableFuture.runAsync(() -> work(owner, handler, running), executor));
+        }
+        long renewMillis = Math.max(1, lease.toMillis() / 3);
+        running.renewal = leaseKeeper.scheduleWithFixedDelay(() -> keepLeases(running), renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        return running;
+    }
+
+    private void work(String owner, MemberTaskHandler handler, Running running) {
+        Set<Long> held = running.held.get(owner);
+        while (!running.stopped) {
+            List<Long> claimed;
+            try {
+                claimed = taskRepository.claim(owner, claimSize, lease, maxAttempts);
+            } catch (RuntimeException e) {
+                log.warn("claim failed for {}: {}", owner, e.getMessage());
+                claimed = List.of();
+            }
+            if (claimed.isEmpty()) {
+                sleep(idlePollMillis);
+                continue;
+            }
+            held.addAll(claimed);
+            for (Long memberId : claimed) {
+                if (running.stopped) {
+                    taskRepository.release(owner, memberId);   // 다른 작업자가 lease 만료를 기다리지 않고 바로 가져가도록
+                } else {
+                    process(owner, memberId, handler, running);
+                }
+                held.remove(memberId);
+            }
+        }
+    }
+
+    private void process(String owner, Long memberId, MemberTaskHandler handler, Running running) {
+        try {
+            Boolean completed = tx.execute(status -> {
+                // 그 사이 삭제된 회원은 처리할 것 없이 완료
+                memberRepository.findById(memberId).ifPresent(handler::process);
+                if (!taskRepository.complete(owner, memberId)) {
+                    status.setRollbackOnly();   // lease를 잃었다 -> 지금 가진 작업자가 처리하므로 이 처리 결과는 버린다.
+                    return false;
+                }
+                return true;
+            });
+            (Boolean.TRUE.equals(completed) ? running.processed : running.lost).increment();
+        } catch (RuntimeException e) {
+            log.warn("member task {} failed on {}: {}", memberId, owner, e.getMessage());
+            running.failed.increment();
+            taskRepository.release(owner, memberId);
+        }
+    }
+
+    private void keepLeases(Running running) {
+        try {
+            for (Map.Entry<String, Set<Long>> entry : running.held.entrySet()) {
+                List<Long> ids = new ArrayList<>(entry.getValue());
+                int renewed = taskRepository.renew(entry.getKey(), ids, lease);
+                // 복사한 뒤 complete/release 된 작업도 연장되지 않으므로, 모자라면 정말 잃은 작업만 다시 센다.
+                int lost = renewed < ids.size() ? taskRepository.countLost(entry.getKey(), ids) : 0;
+                if (lost > 0) {
+                    log.warn("{} lost {} of {} leases", entry.getKey(), lost, ids.size());
+                }
+            }
+            int failed = taskRepository.failExhausted(maxAttempts);
+            if (failed > 0) {
+                log.warn("{} member tasks failed after {} attempts", failed, maxAttempts);
+            }
+        } catch (RuntimeException e) {
+            log.warn("member task lease renewal failed: {}", e.getMessage());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        leaseKeeper.shutdownNow();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 실행 중인 작업자 풀
+     */
+    public static class Running implements AutoCloseable {
+        private final Map<String, Set<Long>> held = new ConcurrentHashMap<>();  // owner -> 가져가서 아직 처리 중인 작업
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder lost = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile boolean stopped;
+        private ScheduledFuture<?> renewal;
+
+        // 처리 중인 작업까지 끝내고 멈춘다. 가져갔지만 시작하지 못한 작업은 PENDING으로 되돌린다.
+        public void stop() {
+            stopped = true;
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            renewal.cancel(false);
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+
+        public long getProcessed() {
+            return processed.sum();
+        }
+
+        // 처리했지만 그 사이 lease를 잃어서 버린 작업 수
+        public long getLost() {
+            return lost.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * 여러 노드가 같은 테이블을 나눠 쓸 때 이 프로세스를 구분하는 id (MemberTaskWorkers, MemberBulkUpdater)
+ */
+final class NodeIds {
+
+    private NodeIds() {
+    }
+
+    /**
+     * 설정값이 없으면 호스트명 + 임의 값
+     * 재기동하면 이전 프로세스가 가졌던 것은 lease/heartbeat가 끝난 뒤 다시 가져가야 하므로 매번 다른 id를 쓴다.
+     */
+    static String resolve(String configured) {
+        if (StringUtils.hasText(configured)) {
+            return configured;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
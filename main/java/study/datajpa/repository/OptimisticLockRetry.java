@@ -0,0 +1,91 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 낙관적 락 충돌(@Version) 시 작업 전체를 새 트랜잭션에서 다시 실행한다.
+ *
+ * findLockByUsername(select ... for update)처럼 읽을 때 잠그지 않으므로 같은 회원을 바꾸려는 트랜잭션들이
+ * 커넥션을 잡은 채 줄 서지 않는다. 대신 커밋 시점에 먼저 커밋한 쪽만 성공하고 나머지는 처음부터 다시 읽어서 다시 바꾼다.
+ *
+ * - 재시도할 때마다 새로 읽어야 하므로 트랜잭션은 이 클래스가 연다. (이미 트랜잭션 안에서 호출하면 예외)
+ * - 재시도 간격은 지수 백오프 + full jitter : 0 ~ min(max-backoff, backoff * 2^(시도 - 1)) 사이 임의의 시간
+ *   (충돌한 트랜잭션들이 같은 간격으로 다시 부딪히지 않도록)
+ * - max-attempts 번 모두 충돌하면 마지막 예외를 그대로 던진다.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetry {
+
+    private final TransactionTemplate tx;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public OptimisticLockRetry(PlatformTransactionManager transactionManager,
+                               @Value("${datajpa.optimistic-retry.max-attempts:5}") int maxAttempts,
+                               @Value("${datajpa.optimistic-retry.backoff-ms:5}") long backoffMillis,
+                               @Value("${datajpa.optimistic-retry.max-backoff-ms:200}") long maxBackoffMillis) {
+        this.tx = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T execute(TransactionCallback<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("OptimisticLockRetry must start the transaction itself; called inside an active transaction");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tx.execute(work);
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("optimistic lock conflict, giving up after {} attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while backing off after an optimistic lock conflict", e);
+        }
+    }
+
+    // 충돌(재시도 포함) 횟수
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    // 재시도를 다 쓰고도 실패한 작업 수
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+}
@@ -0,0 +1,223 @@
+package study.datajpa.repository;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 같은 key에 대한 동시 조회를 하나로 합친다. (single flight)
+ *
+ * 조회가 진행 중인 key로 요청이 또 들어오면 쿼리를 새로 실행하지 않고 진행 중인 조회의 결과를 같이 기다린다.
+ * 첫 요청은 자기 스레드에서 조회하므로 별도 스레드를 쓰지 않는다.
+ *
+ * staleWindow가 0보다 크면 (stale-while-revalidate) 그 시간 안에 조회된 값은 바로 돌려준다.
+ * - 조회한 지 freshWindow 이내 : 그대로 돌려주고 다시 조회하지 않는다.
+ * - freshWindow ~ staleWindow  : 이전 값을 돌려주고, key마다 한 번만 백그라운드에서 다시 조회해서 갱신한다.
+ *                                (갱신 중 표시는 key별 CAS라서 동시에 들어와도 한 번, revalidator가 꽉 차면 갱신을 건너뛴다)
+ * 그동안 변경된 값은 staleWindow 만큼 늦게 보일 수 있다.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long freshWindowNanos;
+    private final long staleWindowNanos;
+    private final int maxKeys;
+    private final Executor revalidator;
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Loaded<V>> recent = new ConcurrentHashMap<>();
+    private final Map<K, KeyStats> keyStats = new ConcurrentHashMap<>();
+    private final KeyStats otherKeys = new KeyStats();  // maxKeys를 넘어서 따로 세지 않는 key들
+
+    public SingleFlight(String name, long freshWindowMillis, long staleWindowMillis, int maxKeys, Executor revalidator) {
+        this.name = name;
+        this.freshWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(freshWindowMillis, staleWindowMillis));
+        this.staleWindowNanos = TimeUnit.MILLISECONDS.toNanos(staleWindowMillis);
+        this.maxKeys = maxKeys;
+        this.revalidator = revalidator;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        KeyStats stats = stats(key);
+        stats.requests.increment();
+
+        if (staleWindowNanos > 0) {
+            Loaded<V> loaded = recent.get(key);
+            long age = loaded == null ? Long.MAX_VALUE : System.nanoTime() - loaded.loadedAt;
+            if (age <= staleWindowNanos) {
+                stats.staleHits.increment();
+                if (age > freshWindowNanos) {
+                    revalidate(key, loader, stats, loaded);
+                }
+                return loaded.value;
+            }
+        }
+        return join(load(key, loader, stats));
+    }
+
+    private void revalidate(K key, Function<? super K, ? extends V> loader, KeyStats stats, Loaded<V> loaded) {
+        if (!loaded.revalidating.compareAndSet(false, true)) {
+            return;     // 이미 이 값을 갱신하는 중
+        }
+        try {
+            revalidator.execute(() -> {
+                try {
+                    load(key, loader, stats);
+                } finally {
+                    loaded.revalidating.set(false);     // 성공하면 새 Loaded로 바뀌고, 실패하면 다음 요청이 다시 시도한다.
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loaded.revalidating.set(false);     // revalidator가 꽉 찼으면 이번에는 이전 값만 돌려준다.
+        }
+    }
+
+    private CompletableFuture<V> load(K key, Function<? super K, ? extends V> loader, KeyStats stats) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            stats.collapsed.increment();
+            return running;
+        }
+
+        stats.loads.increment();
+        try {
+            V value = loader.apply(key);
+            if (value != null && staleWindowNanos > 0) {
+                if (recent.size() >= maxKeys) {
+                    recent.clear(); // key가 폭발하는 경우를 막기 위한 안전장치 (MemberCountCache와 같은 방식)
+                }
+                recent.put(key, new Loaded<>(value));
+            }
+            mine.complete(value);
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return mine;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private KeyStats stats(K key) {
+        KeyStats stats = keyStats.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (keyStats.size() >= maxKeys) {
+            return otherKeys;
+        }
+        return keyStats.computeIfAbsent(key, k -> new KeyStats());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 전체 합계 + 합쳐진(collapsed) 요청이 많은 key 상위 topKeys 개
+     */
+    public Map<String, Object> snapshot(int topKeys) {
+        KeyStats total = new KeyStats();
+        keyStats.values().forEach(total::addTo);
+        otherKeys.addTo(total);
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("name", name);
+        snapshot.putAll(total.snapshot());
+        snapshot.put("inFlight", inFlight.size());
+        snapshot.put("keys", topKeys(topKeys).entrySet().stream()
+                .map(entry -> {
+                    Map<String, Object> key = new LinkedHashMap<>();
+                    key.put("key", String.valueOf(entry.getKey()));
+                    key.putAll(entry.getValue().snapshot());
+                    return key;
+                })
+                .collect(Collectors.toList()));
+        return snapshot;
+    }
+
+    public Map<K, KeyStats> topKeys(int limit) {
+        List<Map.Entry<K, KeyStats>> sorted = keyStats.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<K, KeyStats> entry) -> entry.getValue().collapsed.sum()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        Map<K, KeyStats> top = new LinkedHashMap<>();
+        sorted.forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    public static class KeyStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder loads = new LongAdder();        // 실제 DB 조회
+        private final LongAdder collapsed = new LongAdder();    // 진행 중인 조회에 합쳐진 요청
+        private final LongAdder staleHits = new LongAdder();    // stale-while-revalidate로 바로 응답한 요청
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getLoads() {
+            return loads.sum();
+        }
+
+        public long getCollapsed() {
+            return collapsed.sum();
+        }
+
+        public long getStaleHits() {
+            return staleHits.sum();
+        }
+
+        private void addTo(KeyStats total) {
+            total.requests.add(requests.sum());
+            total.loads.add(loads.sum());
+            total.collapsed.add(collapsed.sum());
+            total.staleHits.add(staleHits.sum());
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("requests", getRequests());
+            snapshot.put("loads", getLoads());
+            snapshot.put("collapsed", getCollapsed());
+            snapshot.put("staleHits", getStaleHits());
+            return snapshot;
+        }
+    }
+
+    private static class Loaded<V> {
+        private final V value;
+        private final long loadedAt = System.nanoTime();
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Loaded(V value) {
+            this.value = value;
+        }
+    }
+}
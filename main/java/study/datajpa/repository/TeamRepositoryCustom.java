@@ -0,0 +1,27 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.entity.Team;
+
+/**
+ * 순수 JPA로 구현하는 Team 전용 custom 메서드 (MemberRepositoryCustom 참고)
+ */
+public interface TeamRepositoryCustom {
+
+    /**
+     * batchSize 단위로 JDBC batch insert 하고 영속성 컨텍스트를 비운다. (BatchInsertSupport 참고)
+     * @return 저장한 건수
+     */
+    int saveAllBatched(Iterable<Team> teams, int batchSize);
+
+    /**
+     * 팀 페이지 + 각 팀의 회원 목록
+     *
+     * 컬렉션 fetch join에 페이징을 걸면 하이버네이트가 전체를 읽어서 메모리에서 페이징하고 (HHH000104 경고),
+     * 지연 로딩으로 회원을 읽으면 팀 수만큼 쿼리가 나간다.
+     * 그래서 팀 id만 SQL로 페이징한 뒤, 그 id들의 팀 + 회원을 batchSize개씩 in 절로 fetch join 해서 가져온다.
+     * 쿼리 수 = id 페이지 1 + ceil(페이지 크기 / batchSize) + count 1 (필요할 때만)
+     */
+    Page<Team> findTeamsWithMembers(Pageable pageable, int batchSize);
+}
@@ -0,0 +1,64 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+
+@RequiredArgsConstructor
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final EntityManager em;
+
+    @Override
+    @Transactional
+    public int saveAllBatched(Iterable<Team> teams, int batchSize) {
+        return BatchInsertSupport.persistInBatches(em, teams, batchSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Team> findTeamsWithMembers(Pageable pageable, int batchSize) {
+        // 1. 팀 id만 페이징 (같은 값이 있어도 페이지 경계가 흔들리지 않도록 id를 마지막 정렬 조건으로 붙인다)
+        Sort sort = pageable.getSort().getOrderFor("id") == null ? pageable.getSort().and(Sort.by("id")) : pageable.getSort();
+        List<Long> ids = em.createQuery(QueryUtils.applySorting("select t.id from Team t", sort, "t"), Long.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        // 2. 그 id의 팀 + 회원을 batchSize개씩 fetch join
+        Map<Long, Team> teams = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            em.createQuery("select distinct t from Team t left join fetch t.members where t.id in :ids", Team.class)
+                    .setParameter("ids", chunk)
+                    .setHint(HINT_PASS_DISTINCT_THROUGH, false)    // distinct는 엔티티 중복 제거에만 쓰고 SQL에는 넣지 않는다.
+                    .getResultList()
+                    .forEach(team -> teams.put(team.getId(), team));
+        }
+
+        // 3. id 페이지 순서대로 (in 절 조회는 순서를 보장하지 않는다)
+        //    1과 2 사이에 삭제된 팀은 2에서 조회되지 않으므로 건너뛴다.
+        List<Team> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Team team = teams.get(id);
+            if (team != null) {
+                content.add(team);
+            }
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () ->
+                em.createQuery("select count(t) from Team t", Long.class).getSingleResult());
+    }
+}
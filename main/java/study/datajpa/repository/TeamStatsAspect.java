@@ -0,0 +1,61 @@
+package study.datajpa.repository;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * 벌크 연산은 엔티티 이벤트가 없으므로 TeamStatsListener가 알 수 없다.
+ * bulkAgePlus 실행 후 같은 트랜잭션에서 영향 받은 팀의 통계를 다시 계산한다.
+ * (호출한 쪽에 트랜잭션이 없으면 벌크 연산과 재계산을 하나의 트랜잭션으로 묶는다)
+ */
+@Aspect
+@Component
+public class TeamStatsAspect {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate tx;
+
+    public TeamStatsAspect(PlatformTransactionManager transactionManager) {
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    // 나이가 age 이상이던 회원은 이제 age + 1 이상이므로 그 회원들이 속한 팀만 다시 계산한다. (전체 팀 집계 X)
+    @Around("(execution(* study.datajpa.repository.MemberRepository.bulkAgePlus(..))" +
+            " || execution(* study.datajpa.repository.MemberJpaRepository.bulkAgePlus(..))) && args(age)")
+    public Object bulkAgePlus(ProceedingJoinPoint joinPoint, int age) {
+        return proceedAndRecompute(joinPoint, connection -> TeamStatsSql.recomputeTeamsWithAgeAtLeast(connection, age + 1));
+    }
+
+    // slice 단위 실행은 그 id 구간의 회원이 속한 팀만 다시 계산한다.
+    @Around("execution(* study.datajpa.repository.MemberRepository.bulkAgePlusInRange(..)) && args(age, fromId, toId)")
+    public Object bulkAgePlusInRange(ProceedingJoinPoint joinPoint, int age, long fromId, long toId) {
+        return proceedAndRecompute(joinPoint, connection -> TeamStatsSql.recomputeTeamsInRange(connection, fromId, toId));
+    }
+
+    private Object proceedAndRecompute(ProceedingJoinPoint joinPoint, Work recompute) {
+        return tx.execute(status -> {
+            Object result;
+            try {
+                result = joinPoint.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+            em.unwrap(Session.class).doWork(recompute);
+            return result;
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package study.datajpa.repository;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * TeamStatsListener를 하이버네이트 이벤트 리스너로 등록한다.
+ *
+ * META-INF/services/org.hibernate.integrator.spi.Integrator 에 등록해서 하이버네이트가 ServiceLoader로 찾는다.
+ * (hibernate.integrator_provider 설정은 값이 하나라서 다른 IntegratorProvider와 서로 덮어쓴다)
+ */
+public class TeamStatsIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        TeamStatsListener listener = new TeamStatsListener();
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
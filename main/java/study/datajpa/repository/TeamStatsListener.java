@@ -0,0 +1,195 @@
+package study.datajpa.repository;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member/Team insert, delete, update 이벤트를 모아서 트랜잭션 완료 직전에 team_stats에 반영한다.
+ *
+ * MemberCountCacheListener와 달리 JPA 엔티티 리스너(@PostUpdate)가 아니라 하이버네이트 이벤트 리스너를 쓴다.
+ * 팀 이동(changeTeam)과 나이 변경을 반영하려면 변경 전 값(old state)이 필요하기 때문이다.
+ *
+ * 이벤트는 flush 시점에 발생하므로 바로 SQL을 날리지 않고 세션(트랜잭션)별로 팀당 변화량을 모아둔다.
+ * 마지막 flush가 끝난 뒤 하이버네이트의 before transaction completion 단계에서 같은 커넥션으로 반영하므로
+ * 회원 변경과 통계 갱신은 함께 커밋되거나 함께 롤백된다.
+ * (벌크 연산은 엔티티 이벤트가 없으므로 TeamStatsAspect에서 처리한다.)
+ */
+public class TeamStatsListener implements PostInsertEventListener, PostDeleteEventListener, PostUpdateEventListener {
+
+    private final Map<SharedSessionContractImplementor, Changes> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            changes(event.getSession()).insertedTeams.add((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getState());
+            if (teamId != null) {
+                changes(event.getSession()).team(teamId).added(age(event.getPersister(), event.getState()));
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            changes(event.getSession()).deletedTeams.add((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getDeletedState());
+            if (teamId != null) {
+                changes(event.getSession()).team(teamId).removed(age(event.getPersister(), event.getDeletedState()));
+            }
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long newTeamId = teamId(persister, event.getState());
+        Changes changes = changes(event.getSession());
+        if (event.getOldState() == null) {
+            // 변경 전 값을 모르는 경우 (스냅샷 없이 update 된 경우) 이전 팀을 알 수 없으므로 전체를 다시 계산한다.
+            changes.recomputeAll = true;
+            return;
+        }
+        Long oldTeamId = teamId(persister, event.getOldState());
+        int oldAge = age(persister, event.getOldState());
+        int newAge = age(persister, event.getState());
+        if (oldAge == newAge && (oldTeamId == null ? newTeamId == null : oldTeamId.equals(newTeamId))) {
+            return; // username만 바뀐 경우
+        }
+        if (oldTeamId != null) {
+            changes.team(oldTeamId).removed(oldAge);
+        }
+        if (newTeamId != null) {
+            changes.team(newTeamId).added(newAge);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private Changes changes(EventSource session) {
+        return pending.computeIfAbsent(session, key -> {
+            Changes changes = new Changes(key);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) changes);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) changes);
+            return changes;
+        });
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {   // 프록시를 초기화하지 않고 id만 꺼낸다.
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    /**
+     * 트랜잭션 하나 동안 모은 변화량
+     */
+    private class Changes implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final SharedSessionContractImplementor session;
+        private final Set<Long> insertedTeams = new LinkedHashSet<>();
+        private final Set<Long> deletedTeams = new LinkedHashSet<>();
+        private final Map<Long, TeamDelta> teams = new LinkedHashMap<>();
+        private boolean recomputeAll;
+
+        Changes(SharedSessionContractImplementor session) {
+            this.session = session;
+        }
+
+        TeamDelta team(Long teamId) {
+            return teams.computeIfAbsent(teamId, key -> new TeamDelta());
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            pending.remove(this.session);
+            session.doWork(connection -> {
+                for (Long teamId : insertedTeams) {
+                    TeamStatsSql.insertTeam(connection, teamId);
+                }
+                if (recomputeAll) {
+                    TeamStatsSql.recomputeAll(connection);
+                } else {
+                    for (Map.Entry<Long, TeamDelta> entry : teams.entrySet()) {
+                        if (!deletedTeams.contains(entry.getKey())) {
+                            entry.getValue().apply(connection, entry.getKey());
+                        }
+                    }
+                }
+                for (Long teamId : deletedTeams) {
+                    TeamStatsSql.deleteTeam(connection, teamId);
+                }
+            });
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pending.remove(this.session);   // 롤백된 경우 before 단계가 실행되지 않는다.
+        }
+    }
+
+    private static class TeamDelta {
+        private long count;
+        private long sum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private Integer removedMin;
+        private Integer removedMax;
+
+        void added(int age) {
+            count++;
+            sum += age;
+            addedMin = addedMin == null ? age : Math.min(addedMin, age);
+            addedMax = addedMax == null ? age : Math.max(addedMax, age);
+        }
+
+        void removed(int age) {
+            count--;
+            sum -= age;
+            removedMin = removedMin == null ? age : Math.min(removedMin, age);
+            removedMax = removedMax == null ? age : Math.max(removedMax, age);
+        }
+
+        void apply(Connection connection, long teamId) throws SQLException {
+            if (TeamStatsSql.apply(connection, teamId, count, sum, addedMin, addedMax) == 0) {
+                TeamStatsSql.recomputeTeam(connection, teamId);
+                return;
+            }
+            if (removedMin != null) {
+                TeamStatsSql.recomputeIfBoundaryRemoved(connection, teamId, removedMin, removedMax);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package study.datajpa.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * team_stats 갱신 SQL
+ *
+ * 하이버네이트 flush가 끝난 뒤(트랜잭션 완료 직전)에 실행되므로 JPQL 대신 같은 커넥션에서 JDBC로 직접 실행한다.
+ * (네이티브 벌크 쿼리로 실행하면 하이버네이트가 2차 캐시 region을 전부 비운다)
+ */
+final class TeamStatsSql {
+
+    private static final String RECOMPUTE = "update team_stats set" +
+            " member_count = (select count(*) from member m where m.team_id = team_stats.team_id)," +
+            " age_sum = (select coalesce(sum(m.age), 0) from member m where m.team_id = team_stats.team_id)," +
+            " min_age = (select min(m.age) from member m where m.team_id = team_stats.team_id)," +
+            " max_age = (select max(m.age) from member m where m.team_id = team_stats.team_id)";
+
+    private TeamStatsSql() {
+    }
+
+    static void insertTeam(Connection connection, long teamId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into team_stats (team_id, member_count, age_sum, min_age, max_age) values (?, 0, 0, null, null)")) {
+            ps.setLong(1, teamId);
+            ps.executeUpdate();
+        }
+    }
+
+    static void deleteTeam(Connection connection, long teamId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("delete from team_stats where team_id = ?")) {
+            ps.setLong(1, teamId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 증분 반영 (count, sum은 더하고 min/max는 추가된 나이와 비교한다)
+     * @return 반영된 row 수 (통계 row가 없으면 0)
+     */
+    static int apply(Connection connection, long teamId, long countDelta, long sumDelta, Integer addedMin, Integer addedMax) throws SQLException {
+        String sql = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?";
+        if (addedMin != null) {
+            sql += ", min_age = case when min_age is null or min_age > ? then ? else min_age end" +
+                    ", max_age = case when max_age is null or max_age < ? then ? else max_age end";
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql + " where team_id = ?")) {
+            int index = 1;
+            ps.setLong(index++, countDelta);
+            ps.setLong(index++, sumDelta);
+            if (addedMin != null) {
+                ps.setInt(index++, addedMin);
+                ps.setInt(index++, addedMin);
+                ps.setInt(index++, addedMax);
+                ps.setInt(index++, addedMax);
+            }
+            ps.setLong(index, teamId);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 빠진 나이가 현재 min/max 경계였을 때만 그 팀의 min/max를 다시 구한다. (member.team_id 인덱스로 그 팀 회원만 읽는다)
+     */
+    static void recomputeIfBoundaryRemoved(Connection connection, long teamId, int removedMin, int removedMax) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE +
+                " where team_id = ? and (member_count = 0 or min_age >= ? or max_age <= ?)")) {
+            ps.setLong(1, teamId);
+            ps.setInt(2, removedMin);
+            ps.setInt(3, removedMax);
+            ps.executeUpdate();
+        }
+    }
+
+    static void recomputeTeam(Connection connection, long teamId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE + " where team_id = ?")) {
+            ps.setLong(1, teamId);
+            if (ps.executeUpdate() == 0) {
+                insertTeam(connection, teamId);   // 통계 기능 이전에 만들어진 팀
+                recomputeTeam(connection, teamId);
+            }
+        }
+    }
+
+    static void recomputeAll(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE)) {
+            ps.executeUpdate();
+        }
+    }
+
+    // id 구간 [fromId, toId)의 회원이 속한 팀만 다시 구한다.
+    static void recomputeTeamsInRange(Connection connection, long fromId, long toId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE +
+                " where team_id in (select m.team_id from member m where m.member_id >= ? and m.member_id < ?)")) {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            ps.executeUpdate();
+        }
+    }
+
+    // 나이가 age 이상인 회원이 속한 팀만 다시 구한다.
+    static void recomputeTeamsWithAgeAtLeast(Connection connection, int age) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE +
+                " where team_id in (select m.team_id from member m where m.age >= ?)")) {
+            ps.setInt(1, age);
+            ps.executeUpdate();
+        }
+    }
+}
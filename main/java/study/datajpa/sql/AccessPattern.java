@@ -0,0 +1,156 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 쿼리 하나가 엔티티 테이블을 어떻게 읽는지 - 동등 조건, 범위 조건, 정렬에 쓰는 프로퍼티 경로 (IndexAdvisor 참고)
+ *
+ * 경로는 루트 엔티티 기준이다. (m.username -> "username", join m.team t ... t.id -> "team.id")
+ * or 조건이 섞인 쿼리는 복합 인덱스 하나로 풀 수 없으므로 조건은 보지 않고 정렬만 본다.
+ * like는 'abc%' 처럼 고정된 앞부분이 있을 때만 범위 조건이다. ('%abc', 파라미터, concat(...)은 인덱스 범위를 정할 수 없다)
+ */
+@Getter
+@ToString
+public class AccessPattern {
+
+    private static final Set<Part.Type> EQUALITY = EnumSet.of(Part.Type.SIMPLE_PROPERTY, Part.Type.IN,
+            Part.Type.IS_NULL, Part.Type.TRUE, Part.Type.FALSE);
+    private static final Set<Part.Type> RANGE = EnumSet.of(Part.Type.BETWEEN, Part.Type.GREATER_THAN,
+            Part.Type.GREATER_THAN_EQUAL, Part.Type.LESS_THAN, Part.Type.LESS_THAN_EQUAL, Part.Type.BEFORE,
+            Part.Type.AFTER, Part.Type.STARTING_WITH);
+
+    private static final Pattern ROOT = Pattern.compile("(?i)\\b(?:from|update)\\s+([\\w.]+)\\s+(?:as\\s+)?(\\w+)");
+    private static final Pattern JOIN = Pattern.compile("(?i)\\bjoin\\s+(?:fetch\\s+)?(\\w+)\\.(\\w+)\\s+(?:as\\s+)?(\\w+)");
+    private static final Pattern WHERE = Pattern.compile("(?i)\\bwhere\\b(.*?)(?:\\border\\s+by\\b|\\bgroup\\s+by\\b|$)", Pattern.DOTALL);
+    private static final Pattern PREDICATE = Pattern.compile("(?i)\\b(\\w+)\\.([\\w.]+)\\s*" +
+            "(>=|<=|<>|!=|=|>|<|not\\s+in\\b|in\\b|not\\s+like\\b|like\\b|between\\b|is\\s+not\\b|is\\b)");
+    private static final Pattern LIKE_PREFIX = Pattern.compile("\\s*'[^'%_]");   // like 'abc%' - 와일드카드로 시작하지 않는 문자열 리터럴
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\border\\s+by\\s+(.+)$", Pattern.DOTALL);
+    private static final Pattern OR = Pattern.compile("(?i)\\bor\\b");
+
+    private final String source;        // ex) MemberRepository.findByUsername
+    private final String entityName;
+    private final List<String> equality = new ArrayList<>();
+    private final List<String> range = new ArrayList<>();
+    private final List<String> sort = new ArrayList<>();
+
+    private AccessPattern(String source, String entityName) {
+        this.source = source;
+        this.entityName = entityName;
+    }
+
+    public boolean isEmpty() {
+        return equality.isEmpty() && range.isEmpty() && sort.isEmpty();
+    }
+
+    /**
+     * 쿼리 메서드 이름 (findByUsernameAndAgeGreaterThan, findTop3ByAgeOrderByUsernameDesc ...)
+     * 메서드 파라미터로 넘기는 Sort, Pageable의 정렬은 실행할 때 정해지므로 알 수 없다.
+     */
+    public static AccessPattern fromPartTree(String source, PartTree tree, String entityName) {
+        AccessPattern pattern = new AccessPattern(source, entityName);
+        int orParts = 0;
+        for (PartTree.OrPart ignored : tree) {
+            orParts++;
+        }
+        if (orParts == 1) {
+            for (Part part : tree.getParts()) {
+                String path = part.getProperty().toDotPath();
+                if (EQUALITY.contains(part.getType())) {
+                    pattern.addEquality(path);
+                } else if (RANGE.contains(part.getType())) {
+                    pattern.range.add(path);
+                }
+            }
+        }
+        for (Sort.Order order : tree.getSort()) {
+            pattern.sort.add(order.getProperty());
+        }
+        return pattern;
+    }
+
+    /**
+     * JPQL (@Query, @NamedQuery) - 정규식으로 루트 엔티티, join 별칭, where 조건, order by를 뽑는다.
+     * 루트 엔티티를 찾지 못하면 null
+     */
+    public static AccessPattern fromJpql(String source, String jpql) {
+        Matcher root = ROOT.matcher(jpql);
+        if (!root.find()) {
+            return null;
+        }
+        String entityName = root.group(1).substring(root.group(1).lastIndexOf('.') + 1);
+        String rootAlias = root.group(2);
+        AccessPattern pattern = new AccessPattern(source, entityName);
+
+        // join m.team t -> t 는 "team"
+        Map<String, String> joins = new HashMap<>();
+        Matcher join = JOIN.matcher(jpql);
+        while (join.find()) {
+            if (join.group(1).equals(rootAlias)) {
+                joins.put(join.group(3), join.group(2));
+            }
+        }
+
+        Matcher where = WHERE.matcher(jpql);
+        if (where.find() && !OR.matcher(where.group(1)).find()) {
+            String conditions = where.group(1);
+            Matcher predicate = PREDICATE.matcher(conditions);
+            while (predicate.find()) {
+                String path = toRootPath(predicate.group(1), predicate.group(2), rootAlias, joins);
+                String op = predicate.group(3).toLowerCase().replaceAll("\\s+", " ");
+                if (path == null || op.startsWith("not") || op.equals("<>") || op.equals("!=") || op.equals("is not")) {
+                    continue;
+                }
+                if (op.equals("=") || op.equals("in") || op.equals("is")) {
+                    pattern.addEquality(path);
+                } else if (op.equals("like")) {
+                    if (LIKE_PREFIX.matcher(conditions).region(predicate.end(), conditions.length()).lookingAt()) {
+                        pattern.range.add(path);
+                    }
+                } else {
+                    pattern.range.add(path);
+                }
+            }
+        }
+
+        Matcher orderBy = ORDER_BY.matcher(jpql);
+        if (orderBy.find()) {
+            for (String item : orderBy.group(1).split(",")) {
+                String[] tokens = item.trim().split("\\s+");
+                int dot = tokens[0].indexOf('.');
+                String path = dot < 0 ? null : toRootPath(tokens[0].substring(0, dot), tokens[0].substring(dot + 1), rootAlias, joins);
+                if (path != null) {
+                    pattern.sort.add(path);
+                }
+            }
+        }
+        return pattern;
+    }
+
+    private static String toRootPath(String alias, String property, String rootAlias, Map<String, String> joins) {
+        if (alias.equals(rootAlias)) {
+            return property;
+        }
+        String association = joins.get(alias);
+        return association == null ? null : association + "." + property;
+    }
+
+    private void addEquality(String path) {
+        if (!equality.contains(path)) {
+            equality.add(path);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 테이블에 있어야 할 인덱스 하나와 그 인덱스가 필요한 쿼리들 (IndexAdvisor 참고)
+ */
+@Getter
+@ToString
+public class IndexAdvice {
+
+    public enum Status { COVERED, MISSING, CREATED }
+
+    private final String table;
+    private final List<String> columns;
+    private int equalityCount;  // 앞에서부터 이만큼은 동등 조건 컬럼 (인덱스에서 서로 순서가 달라도 된다)
+    private final List<String> sources = new ArrayList<>();
+    private Status status;
+    private String coveredBy;   // 이미 있는 인덱스 이름 (COVERED)
+
+    IndexAdvice(String table, List<String> columns, int equalityCount) {
+        this.table = table;
+        this.columns = columns;
+        this.equalityCount = equalityCount;
+    }
+
+    public String getDdl() {
+        return "create index " + indexName() + " on " + table + " (" + String.join(", ", columns) + ")";
+    }
+
+    // 이름 길이 제한이 있는 DB를 위해 60자로 자른다.
+    String indexName() {
+        String name = "idx_" + table.substring(table.lastIndexOf('.') + 1) + "_" + String.join("_", columns);
+        name = name.toLowerCase();
+        return name.length() <= 60 ? name : name.substring(0, 51) + "_" + Integer.toHexString(name.hashCode());
+    }
+
+    // 같은 컬럼을 쓰는 쿼리 중 하나라도 범위 조건/정렬이면 그 순서를 지켜야 한다.
+    void narrowEquality(int equalityCount) {
+        this.equalityCount = Math.min(this.equalityCount, equalityCount);
+    }
+
+    void covered(String indexName) {
+        this.status = Status.COVERED;
+        this.coveredBy = indexName;
+    }
+
+    void missing() {
+        this.status = Status.MISSING;
+    }
+
+    void created() {
+        this.status = Status.CREATED;
+    }
+}
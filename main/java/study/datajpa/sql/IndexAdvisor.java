@@ -0,0 +1,349 @@
+package study.datajpa.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 인덱스 점검 - 애플리케이션이 뜰 때 리포지토리 쿼리들이 쓰는 조건/정렬 컬럼에 맞는 인덱스가 있는지 본다.
+ *
+ * - 대상 : 스프링 데이터 리포지토리의 쿼리 메서드 (메서드 이름 쿼리, @Query JPQL)와 엔티티의 @NamedQuery
+ *   (EntityManager로 직접 만든 JPQL은 알 수 없으므로 자주 쓰는 쿼리는 @NamedQuery로 선언한다. Member.findByPage 참고)
+ * - 필요한 인덱스 = 동등 조건 컬럼들 + (정렬 컬럼들, 정렬이 없으면 첫 번째 범위 조건 컬럼)
+ *   pk 동등 조건이 있는 쿼리는 pk 인덱스로 충분하므로 보지 않는다.
+ * - 있는 인덱스는 JDBC 메타데이터(getIndexInfo)로 읽는다. 앞쪽 컬럼이 필요한 컬럼 순서와 같으면 충분하다고 본다.
+ *   (동등 조건 컬럼끼리는 순서가 달라도 된다)
+ *
+ * datajpa.index-advisor.mode
+ * - report : 없는 인덱스와 create index 문을 경고 로그로 남긴다.
+ * - create : 없는 인덱스를 바로 만든다. (ddl-auto: create 처럼 스키마를 애플리케이션이 관리하는 개발/테스트 환경용)
+ * - fail   : 없는 인덱스가 있으면 기동을 실패시킨다. (CI에서 풀 스캔 쿼리가 배포되는 것을 막는다)
+ * - off
+ */
+@Slf4j
+@Component
+public class IndexAdvisor {
+
+    private final ApplicationContext applicationContext;
+    private final EntityManagerFactory emf;
+    private final DataSource dataSource;
+    private final String mode;
+
+    private volatile List<IndexAdvice> advice = Collections.emptyList();
+
+    public IndexAdvisor(ApplicationContext applicationContext,
+                        EntityManagerFactory emf,
+                        DataSource dataSource,
+                        @Value("${datajpa.index-advisor.mode:report}") String mode) {
+        this.applicationContext = applicationContext;
+        this.emf = emf;
+        this.dataSource = dataSource;
+        this.mode = mode.toLowerCase(Locale.ROOT);
+    }
+
+    // 스키마 생성(ddl-auto)과 초기 데이터 입력이 끝난 뒤에 점검한다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if ("off".equals(mode)) {
+            return;
+        }
+        List<IndexAdvice> result = analyze();
+        List<IndexAdvice> missing = new ArrayList<>();
+        for (IndexAdvice each : result) {
+            if (each.getStatus() == IndexAdvice.Status.MISSING) {
+                missing.add(each);
+            }
+        }
+
+        if ("create".equals(mode)) {
+            createMissing(missing);
+        } else {
+            for (IndexAdvice each : missing) {
+                log.warn("index advisor - no index for {}({}) used by {} -> {}",
+                        each.getTable(), String.join(", ", each.getColumns()), each.getSources(), each.getDdl());
+            }
+            if ("fail".equals(mode) && !missing.isEmpty()) {
+                throw new IllegalStateException(missing.size() + " queries have no supporting index: " + missing);
+            }
+        }
+        log.info("index advisor - {} access patterns, {} without index (mode = {})", result.size(), missing.size(), mode);
+        advice = result;
+    }
+
+    // 마지막 점검 결과 (기동 시점, mode = off 이면 빈 값)
+    public List<IndexAdvice> getAdvice() {
+        return advice;
+    }
+
+    /**
+     * 쿼리들의 접근 패턴을 모으고 지금 DB에 있는 인덱스와 비교한다. (DB는 바꾸지 않는다)
+     * 같은 테이블, 같은 컬럼이 필요한 쿼리들은 하나로 묶는다.
+     */
+    public List<IndexAdvice> analyze() {
+        SessionFactoryImplementor factory = emf.unwrap(SessionFactoryImplementor.class);
+        Map<String, IndexAdvice> byKey = new LinkedHashMap<>();
+        for (AccessPattern pattern : collectPatterns()) {
+            AbstractEntityPersister persister = persister(factory, pattern.getEntityName());
+            if (persister == null) {
+                continue;
+            }
+            List<String> equality = columns(factory, persister, pattern.getEquality());
+            List<String> columns = requiredColumns(factory, persister, pattern, equality);
+            if (columns.isEmpty()) {
+                continue;
+            }
+            String table = persister.getTableName();
+            IndexAdvice each = byKey.computeIfAbsent(table + columns, key -> new IndexAdvice(table, columns, equality.size()));
+            each.narrowEquality(equality.size());
+            each.getSources().add(pattern.getSource());
+        }
+
+        Map<String, Map<String, List<String>>> indexesByTable = new HashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (IndexAdvice each : byKey.values()) {
+                Map<String, List<String>> indexes = indexesByTable.get(each.getTable());
+                if (indexes == null) {
+                    indexes = readIndexes(connection.getMetaData(), each.getTable());
+                    indexesByTable.put(each.getTable(), indexes);
+                }
+                checkCoverage(each, indexes);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("failed to read index metadata", e);
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    /**
+     * 없는 인덱스를 만든다.
+     * @return 만든 인덱스 수
+     */
+    public int createMissing(List<IndexAdvice> missing) {
+        int created = 0;
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (IndexAdvice each : missing) {
+                statement.execute(each.getDdl());
+                each.created();
+                created++;
+                log.info("index advisor - created {} for {}", each.getDdl(), each.getSources());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("failed to create index", e);
+        }
+        return created;
+    }
+
+    private List<AccessPattern> collectPatterns() {
+        List<AccessPattern> patterns = new ArrayList<>();
+        Set<String> namedQueries = new HashSet<>();
+        for (javax.persistence.metamodel.EntityType<?> entity : emf.getMetamodel().getEntities()) {
+            for (NamedQuery namedQuery : AnnotatedElementUtils.findMergedRepeatableAnnotations(
+                    entity.getJavaType(), NamedQuery.class, NamedQueries.class)) {
+                namedQueries.add(namedQuery.name());
+                AccessPattern pattern = AccessPattern.fromJpql(namedQuery.name(), namedQuery.query());
+                if (pattern != null) {
+                    patterns.add(pattern);
+                }
+            }
+        }
+
+        Repositories repositories = new Repositories(applicationContext);
+        for (Class<?> domainType : repositories) {
+            Optional<RepositoryInformation> information = repositories.getRepositoryInformationFor(domainType);
+            if (!information.isPresent()) {
+                continue;
+            }
+            RepositoryInformation info = information.get();
+            String entityName = emf.getMetamodel().entity(domainType).getName();
+            for (Method method : info.getQueryMethods()) {
+                AccessPattern pattern = queryMethodPattern(info, entityName, method, namedQueries);
+                if (pattern != null) {
+                    patterns.add(pattern);
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * 스프링 데이터가 쿼리를 정하는 순서와 같게 본다.
+     * @Query(value) -> @Query(name) / 엔티티명.메서드명 @NamedQuery (엔티티 쪽에서 따로 분석하므로 건너뛴다) -> 메서드 이름
+     */
+    private AccessPattern queryMethodPattern(RepositoryInformation info, String entityName, Method method,
+                                             Set<String> namedQueries) {
+        String source = info.getRepositoryInterface().getSimpleName() + "." + method.getName();
+        Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+        if (query != null && query.nativeQuery()) {
+            return null;    // 네이티브 쿼리는 파싱하지 않는다.
+        }
+        if (query != null && StringUtils.hasText(query.value())) {
+            return AccessPattern.fromJpql(source, query.value());
+        }
+        if (query != null && StringUtils.hasText(query.name()) || namedQueries.contains(entityName + "." + method.getName())) {
+            return null;
+        }
+        try {
+            return AccessPattern.fromPartTree(source, new PartTree(method.getName(), info.getDomainType()), entityName);
+        } catch (RuntimeException e) {
+            log.debug("index advisor - cannot derive query from {}", source, e);
+            return null;
+        }
+    }
+
+    private static AbstractEntityPersister persister(SessionFactoryImplementor factory, String entityName) {
+        MetamodelImplementor metamodel = factory.getMetamodel();
+        String className = metamodel.getImportedClassName(entityName);
+        EntityPersister persister = className == null ? null : metamodel.locateEntityPersister(className);
+        return persister instanceof AbstractEntityPersister ? (AbstractEntityPersister) persister : null;
+    }
+
+    // 동등 조건 컬럼들 + (정렬 컬럼들 또는 첫 번째 범위 조건 컬럼), pk로 찾는 쿼리면 빈 값
+    private static List<String> requiredColumns(SessionFactoryImplementor factory, AbstractEntityPersister persister,
+                                                AccessPattern pattern, List<String> equality) {
+        String idColumn = persister.getIdentifierColumnNames()[0].toLowerCase(Locale.ROOT);
+        if (equality.contains(idColumn)) {
+            return Collections.emptyList();
+        }
+        List<String> columns = new ArrayList<>(equality);
+        List<String> tail = pattern.getSort().isEmpty()
+                ? columns(factory, persister, pattern.getRange())
+                : columns(factory, persister, pattern.getSort());
+        if (pattern.getSort().isEmpty() && tail.size() > 1) {
+            tail = tail.subList(0, 1);
+        }
+        for (String column : tail) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        if (columns.isEmpty() || columns.get(0).equals(idColumn)) {
+            return Collections.emptyList();   // pk 인덱스로 충분하다.
+        }
+        return columns;
+    }
+
+    private static List<String> columns(SessionFactoryImplementor factory, AbstractEntityPersister persister, List<String> paths) {
+        List<String> columns = new ArrayList<>();
+        for (String path : paths) {
+            String column = column(factory, persister, path);
+            if (column != null && !columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 프로퍼티 경로 -> 이 엔티티 테이블의 컬럼
+     * "username" -> username, "team.id" -> team_id (외래 키), 다른 테이블 컬럼 ("team.name")이면 null
+     */
+    private static String column(SessionFactoryImplementor factory, AbstractEntityPersister persister, String path) {
+        String[] segments = path.split("\\.");
+        try {
+            Type type = persister.getPropertyType(segments[0]);
+            if (type.isCollectionType() || type.isComponentType()) {
+                return null;
+            }
+            if (segments.length == 2 && type.isEntityType()) {
+                String associated = ((EntityType) type).getAssociatedEntityName(factory);
+                String targetId = factory.getMetamodel().entityPersister(associated).getIdentifierPropertyName();
+                if (!segments[1].equals(targetId)) {
+                    return null;
+                }
+            } else if (segments.length != 1) {
+                return null;
+            }
+            String[] columns = persister.getPropertyColumnNames(segments[0]);
+            return columns.length == 1 ? columns[0].toLowerCase(Locale.ROOT) : null;
+        } catch (HibernateException e) {
+            // 식별자 프로퍼티는 getPropertyType으로 찾을 수 없다.
+            return segments.length == 1 && segments[0].equals(persister.getIdentifierPropertyName())
+                    ? persister.getIdentifierColumnNames()[0].toLowerCase(Locale.ROOT) : null;
+        }
+    }
+
+    // 인덱스 이름 -> 컬럼 (순서대로, 소문자)
+    private static Map<String, List<String>> readIndexes(DatabaseMetaData metaData, String table) throws SQLException {
+        String tableName = table.substring(table.lastIndexOf('.') + 1);
+        if (metaData.storesUpperCaseIdentifiers()) {
+            tableName = tableName.toUpperCase(Locale.ROOT);
+        } else if (metaData.storesLowerCaseIdentifiers()) {
+            tableName = tableName.toLowerCase(Locale.ROOT);
+        }
+        String schema = metaData.getConnection().getSchema();
+
+        Map<String, TreeMap<Short, String>> ordered = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(metaData.getConnection().getCatalog(), schema, tableName, false, true)) {
+            while (rs.next()) {
+                if (rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic || rs.getString("COLUMN_NAME") == null) {
+                    continue;
+                }
+                ordered.computeIfAbsent(rs.getString("INDEX_NAME"), key -> new TreeMap<>())
+                        .put(rs.getShort("ORDINAL_POSITION"), rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        ordered.forEach((name, columns) -> indexes.put(name, new ArrayList<>(columns.values())));
+        return indexes;
+    }
+
+    /**
+     * 인덱스 앞쪽 컬럼이 (동등 조건 컬럼들, 순서 무관) + (나머지 컬럼들, 순서대로) 이면 충분하다.
+     */
+    private static void checkCoverage(IndexAdvice advice, Map<String, List<String>> indexes) {
+        List<String> required = advice.getColumns();
+        int equalityCount = advice.getEqualityCount();
+        for (Map.Entry<String, List<String>> index : indexes.entrySet()) {
+            List<String> columns = index.getValue();
+            if (columns.size() < required.size()) {
+                continue;
+            }
+            boolean covered = new HashSet<>(columns.subList(0, equalityCount))
+                    .equals(new HashSet<>(required.subList(0, equalityCount)))
+                    && columns.subList(equalityCount, required.size()).equals(required.subList(equalityCount, required.size()));
+            if (covered) {
+                advice.covered(index.getKey());
+                return;
+            }
+        }
+        advice.missing();
+    }
+}
@@ -0,0 +1,11 @@
+package study.datajpa.sql;
+
+/**
+ * SQL 예산 초과 또는 N + 1 의심 (datajpa.sql-budget.action = fail 일 때)
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
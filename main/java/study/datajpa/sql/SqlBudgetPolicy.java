@@ -0,0 +1,83 @@
+package study.datajpa.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * SQL 예산 정책
+ *
+ * - per-request / per-transaction : HTTP 요청 하나, 트랜잭션 하나에서 허용하는 SQL 수 (0 이하면 제한 없음)
+ * - n-plus-one-threshold          : 같은 모양의 SQL이 이 횟수 이상 반복되면 N + 1 로 본다. (0 이하면 검사 안함)
+ * - action                        : log(info 로그) | warn(warn 로그) | fail(예외, 초과하는 순간 SQL 실행을 막는다)
+ */
+@Slf4j
+@Component
+public class SqlBudgetPolicy {
+
+    public enum Action { LOG, WARN, FAIL }
+
+    private final int perRequest;
+    private final int perTransaction;
+    private final int nPlusOneThreshold;
+    private final Action action;
+
+    public SqlBudgetPolicy(@Value("${datajpa.sql-budget.per-request:0}") int perRequest,
+                           @Value("${datajpa.sql-budget.per-transaction:0}") int perTransaction,
+                           @Value("${datajpa.sql-budget.n-plus-one-threshold:0}") int nPlusOneThreshold,
+                           @Value("${datajpa.sql-budget.action:warn}") String action) {
+        this.perRequest = perRequest;
+        this.perTransaction = perTransaction;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.action = Action.valueOf(action.toUpperCase());
+    }
+
+    StatementScope openRequestScope(String name) {
+        return SqlStatementRecorder.open(name, perRequest, nPlusOneThreshold);
+    }
+
+    StatementScope openTransactionScope(String name) {
+        return SqlStatementRecorder.open(name, perTransaction, nPlusOneThreshold);
+    }
+
+    /**
+     * SQL이 실행될 때마다 호출된다. fail 모드에서는 예산을 넘는 순간 예외를 던진다.
+     */
+    void onStatement(StatementScope scope, String sql) {
+        if (action != Action.FAIL) {
+            return;
+        }
+        if (scope.isOverBudget()) {
+            throw new SqlBudgetExceededException("SQL budget exceeded: " + scope + " sql=" + sql);
+        }
+        int repeated = scope.countOf(sql);
+        if (nPlusOneThreshold > 0 && repeated == nPlusOneThreshold) {
+            throw new SqlBudgetExceededException("N+1 suspected in " + scope + ": " + repeated + " x " + sql);
+        }
+    }
+
+    /**
+     * 구간이 끝날 때 호출된다. (log, warn 모드에서 결과를 남긴다)
+     */
+    void onClose(StatementScope scope) {
+        if (action == Action.FAIL) {
+            return; // 이미 실행 시점에 막았다.
+        }
+        if (scope.isOverBudget()) {
+            report("SQL budget exceeded: {}", scope);
+        }
+        for (Map.Entry<String, Integer> entry : scope.repeatedShapes().entrySet()) {
+            report("N+1 suspected in " + scope + ": {} x {}", entry.getValue(), entry.getKey());
+        }
+    }
+
+    private void report(String format, Object... args) {
+        if (action == Action.WARN) {
+            log.warn(format, args);
+        } else {
+            log.info(format, args);
+        }
+    }
+}
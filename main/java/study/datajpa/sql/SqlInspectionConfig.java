@@ -0,0 +1,19 @@
+package study.datajpa.sql;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * SqlStatementInspector를 스프링 빈 그대로 하이버네이트에 등록한다.
+ * (application.yml에 클래스 이름으로 등록하면 하이버네이트가 직접 생성해서 스프링 빈을 주입받을 수 없다)
+ */
+@Configuration
+public class SqlInspectionConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(SqlStatementInspector inspector) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+}
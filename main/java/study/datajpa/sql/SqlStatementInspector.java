@@ -0,0 +1,61 @@
+package study.datajpa.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 하이버네이트가 SQL을 JDBC로 보내기 직전에 호출하는 StatementInspector
+ *
+ * org.hibernate.SQL 로그처럼 문자열을 남기는 대신, 열려 있는 구간(StatementScope)별로 실행 횟수를 센다.
+ * 트랜잭션 구간은 트랜잭션 안에서 첫 SQL이 실행될 때 열고, 트랜잭션이 끝나면 닫는다.
+ * (REQUIRES_NEW로 새 트랜잭션이 열리면 바깥 트랜잭션의 구간은 리소스와 함께 보류되고, 그동안의 SQL은 세지 않는다)
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlStatementInspector implements StatementInspector {
+
+    private static final Object TRANSACTION_SCOPE_KEY = new Object();
+
+    private final SqlBudgetPolicy policy;
+
+    @Override
+    public String inspect(String sql) {
+        openTransactionScopeIfNeeded();
+        SqlStatementRecorder.record(sql, policy);
+        return sql;
+    }
+
+    private void openTransactionScopeIfNeeded() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(TRANSACTION_SCOPE_KEY)) {
+            return;
+        }
+
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        StatementScope scope = policy.openTransactionScope("tx " + (name != null ? name : "(unnamed)"));
+        TransactionSynchronizationManager.bindResource(TRANSACTION_SCOPE_KEY, scope);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(TRANSACTION_SCOPE_KEY);
+                scope.suspend();
+            }
+
+            @Override
+            public void resume() {
+                scope.resume();
+                TransactionSynchronizationManager.bindResource(TRANSACTION_SCOPE_KEY, scope);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_SCOPE_KEY);
+                scope.close();
+                policy.onClose(scope);
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.sql;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 현재 스레드에서 열려 있는 StatementScope들에 실행된 SQL을 기록한다.
+ * (구간은 중첩될 수 있다. ex. HTTP 요청 구간 안의 트랜잭션 구간)
+ *
+ * 테스트에서 사용 예
+ * <pre>
+ * try (StatementScope scope = SqlStatementRecorder.start("fetch join")) {
+ *     memberRepository.findMemberFetchJoin();
+ *     assertThat(scope.count()).isEqualTo(1);
+ * }
+ * </pre>
+ */
+public final class SqlStatementRecorder {
+
+    private static final ThreadLocal<Deque<StatementScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private SqlStatementRecorder() {
+    }
+
+    /**
+     * 제한 없이 SQL 수만 세는 구간을 연다.
+     */
+    public static StatementScope start(String name) {
+        return open(name, 0, 0);
+    }
+
+    static StatementScope open(String name, int budget, int nPlusOneThreshold) {
+        StatementScope scope = new StatementScope(name, budget, nPlusOneThreshold);
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    static void record(String sql, SqlBudgetPolicy policy) {
+        for (StatementScope scope : SCOPES.get()) {
+            if (scope.isSuspended()) {
+                continue;   // 보류된 바깥 트랜잭션의 구간 (REQUIRES_NEW 안에서 실행된 SQL은 새 트랜잭션의 것)
+            }
+            scope.record(sql);
+            policy.onStatement(scope, sql);
+        }
+    }
+
+    static void remove(StatementScope scope) {
+        Deque<StatementScope> scopes = SCOPES.get();
+        scopes.remove(scope);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+}
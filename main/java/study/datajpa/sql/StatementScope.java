@@ -0,0 +1,102 @@
+package study.datajpa.sql;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SQL 실행 횟수를 세는 구간 (HTTP 요청 하나, 트랜잭션 하나, 테스트 코드 블록 하나 등)
+ *
+ * 같은 모양(shape)의 SQL이 반복되면 N + 1 을 의심할 수 있다.
+ * 하이버네이트는 파라미터를 ? 로 바인딩하므로 SQL 문자열 자체가 모양이 되고, in (?, ?, ...)의 개수 차이만 정규화한다.
+ */
+public class StatementScope implements AutoCloseable {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_PARAMETERS = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final String name;
+    private final int budget;               // 0 이하면 제한 없음
+    private final int nPlusOneThreshold;    // 0 이하면 검사 안함
+    private final Map<String, Integer> shapes = new LinkedHashMap<>();
+    private int count;
+    private boolean closed;
+    private boolean suspended;  // 트랜잭션이 보류된 동안 (REQUIRES_NEW) 기록하지 않는다.
+
+    StatementScope(String name, int budget, int nPlusOneThreshold) {
+        this.name = name;
+        this.budget = budget;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    void record(String sql) {
+        count++;
+        shapes.merge(normalize(sql), 1, Integer::sum);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // 이 구간에서 실행된 SQL 수
+    public int count() {
+        return count;
+    }
+
+    public boolean isOverBudget() {
+        return budget > 0 && count > budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * nPlusOneThreshold 번 이상 반복된 SQL 모양 -> 실행 횟수
+     */
+    public Map<String, Integer> repeatedShapes() {
+        if (nPlusOneThreshold <= 0) {
+            return Collections.emptyMap();
+        }
+        return shapes.entrySet().stream()
+                .filter(entry -> entry.getValue() >= nPlusOneThreshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    // 이 구간에서 sql과 같은 모양의 SQL이 실행된 횟수
+    public int countOf(String sql) {
+        return shapes.getOrDefault(normalize(sql), 0);
+    }
+
+    boolean isSuspended() {
+        return suspended;
+    }
+
+    void suspend() {
+        suspended = true;
+    }
+
+    void resume() {
+        suspended = false;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            SqlStatementRecorder.remove(this);
+        }
+    }
+
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql).replaceAll(" ");
+        return IN_PARAMETERS.matcher(shape).replaceAll("(?)").trim();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[statements=" + count + (budget > 0 ? ", budget=" + budget : "") + "]";
+    }
+}
@@ -0,0 +1,56 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void conditionalGetMember() throws Exception {
+        Member member = memberRepository.save(new Member("etag1", 10));
+
+        String etag = mockMvc.perform(get("/members/{id}", member.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        // 바뀐 것이 없으면 304
+        mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // 벌크 연산도 version을 올리므로 ETag가 바뀐다. (같은 밀리초 안이라도)
+        memberRepository.bulkAgePlusInRange(0, member.getId(), member.getId() + 1);
+        mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void conditionalGetList() throws Exception {
+        String etag = mockMvc.perform(get("/members").param("page", "0").param("size", "3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/members").param("page", "0").param("size", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // 회원이 추가되면 전체 수가 바뀌므로 ETag가 바뀐다.
+        memberRepository.save(new Member("etag2", 10));
+        mockMvc.perform(get("/members").param("page", "0").param("size", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+}
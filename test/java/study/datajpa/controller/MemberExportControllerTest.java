@@ -0,0 +1,99 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 응답은 별도 스레드에서 별도 트랜잭션으로 조회하므로 @Transactional 없이 커밋된 데이터로 테스트한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberExportControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void exportCsv() throws Exception {
+        // given - CSV에서 따옴표로 감싸야 하는 username
+        String username = "kim, \"jr\"\nsecond line";
+        Member member = memberRepository.save(new Member(username, 10));
+        long total = memberRepository.count();
+
+        // when - StreamingResponseBody는 비동기로 처리된다.
+        MvcResult result = mockMvc.perform(get("/members/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=members.csv"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        // then
+        List<List<String>> rows = parseCsv(result.getResponse().getContentAsString(StandardCharsets.UTF_8));
+        assertThat(rows.get(0)).containsExactly("id", "username", "teamName");
+        assertThat(rows).hasSize((int) total + 1);
+        assertThat(rows).contains(Arrays.asList(String.valueOf(member.getId()), username, ""));
+    }
+
+    @Test
+    public void unsupportedFormat() throws Exception {
+        mockMvc.perform(get("/members/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // RFC 4180 - 따옴표 안의 쉼표, 줄바꿈은 값의 일부이고 "" 는 " 하나
+    private static List<List<String>> parseCsv(String csv) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                row.add(value.toString());
+                value.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else {
+                value.append(c);
+            }
+        }
+        assertThat(quoted).isFalse();
+        assertThat(value).isEmpty();    // 마지막 row도 줄바꿈으로 끝난다.
+        return rows;
+    }
+}
@@ -0,0 +1,84 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * H2 메모리 DB 두 개를 primary / 복제본으로 쓴다.
+ * 복제는 primary 전체를 script로 떠서 복제본에 runscript 하는 것으로 흉내 낸다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replicas[0].url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replicas[0].username=sa",
+        "datajpa.datasource.lag-probe-interval-ms=0"    // 지연 측정은 테스트에서 직접 호출
+})
+class ReplicaRoutingTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired ReplicaLagMonitor lagMonitor;
+    @Autowired HikariDataSource primaryDataSource;
+
+    @TempDir Path dir;
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+
+    @BeforeEach
+    public void replicate() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:routing-replica", "sa", ""));
+
+        lagMonitor.probe();
+        String snapshot = dir.resolve("snapshot.sql").toString();
+        primary.execute("script to '" + snapshot + "'");
+        replica.execute("drop all objects");
+        replica.execute("runscript from '" + snapshot + "'");
+        lagMonitor.probe();     // 복제본이 방금 heartbeat까지 따라잡았으므로 사용 가능
+    }
+
+    @Test
+    public void readOnlyHintedQueryReadsFromReplica() {
+        memberRepository.save(new Member("routing1", 10));
+        replicate();
+        replica.update("update member set age = 99 where username = 'routing1'");   // 어느 쪽에서 읽었는지 구분용
+
+        assertThat(memberRepository.findReadOnlyByUsername("routing1").getAge()).isEqualTo(99);
+        // readOnly 힌트가 없는 쿼리 메서드는 primary
+        assertThat(memberRepository.findListByUsername("routing1").get(0).getAge()).isEqualTo(10);
+    }
+
+    @Test
+    public void readYourWrites() {
+        try (ReadYourWrites scope = ReadYourWrites.open()) {
+            memberRepository.save(new Member("routing2", 20));
+            // 복제본에는 아직 없지만 같은 범위에서 썼으므로 primary에서 읽는다.
+            assertThat(memberRepository.findReadOnlyByUsername("routing2")).isNotNull();
+        }
+        // 범위 밖의 읽기는 복제본으로 간다.
+        assertThat(memberRepository.findReadOnlyByUsername("routing2")).isNull();
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() {
+        replica.update("update member set age = 99 where username = 'user1'");
+        assertThat(memberRepository.findReadOnlyByUsername("user1").getAge()).isEqualTo(99);
+
+        replica.update("update replica_heartbeat set beat = beat - 60000");     // 복제가 1분 밀린 상태
+        lagMonitor.probe();
+
+        assertThat(memberRepository.findReadOnlyByUsername("user1").getAge()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,84 @@
+package study.datajpa.entity.id;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LockFreePooledLoOptimizerTest {
+
+    static final int BLOCK_SIZE = 50;
+
+    /**
+     * increment by 50 인 DB 시퀀스 흉내
+     */
+    static class FakeSequence implements AccessCallback {
+        final AtomicLong value = new AtomicLong(1 - BLOCK_SIZE);
+        final AtomicLong calls = new AtomicLong();
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+            calls.incrementAndGet();
+            return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class)
+                    .initialize(value.addAndGet(BLOCK_SIZE));
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+            return null;
+        }
+    }
+
+    @Test
+    public void blockAllocation() {
+        FakeSequence sequence = new FakeSequence();
+        LockFreePooledLoOptimizer optimizer = new LockFreePooledLoOptimizer(Long.class, BLOCK_SIZE);
+
+        for (long expected = 1; expected <= 120; expected++) {
+            assertThat(optimizer.generate(sequence)).isEqualTo(expected);
+        }
+
+        // 120개를 할당하는 동안 시퀀스는 3번만 호출된다. [1, 50] [51, 100] [101, 150]
+        assertThat(sequence.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void twoNodesNeverOverlap() throws InterruptedException {
+        // 같은 DB 시퀀스를 공유하는 애플리케이션 노드 2대, 노드마다 스레드 8개
+        FakeSequence sequence = new FakeSequence();
+        LockFreePooledLoOptimizer node1 = new LockFreePooledLoOptimizer(Long.class, BLOCK_SIZE);
+        LockFreePooledLoOptimizer node2 = new LockFreePooledLoOptimizer(Long.class, BLOCK_SIZE);
+
+        int threads = 16;
+        int perThread = 10_000;
+        Set<Object> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            LockFreePooledLoOptimizer node = t % 2 == 0 ? node1 : node2;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(node.generate(sequence));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+}
@@ -0,0 +1,54 @@
+package study.datajpa.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));   // 1ms ~ 100ms
+        }
+
+        assertThat(histogram.count()).isEqualTo(100);
+        // bucket 상한을 반환하므로 실제 값 이상, 오차 19% 이내
+        assertThat(histogram.percentileNanos(0.50)).isBetween(ms(50), (long) (ms(50) * 1.19));
+        assertThat(histogram.percentileNanos(0.95)).isBetween(ms(95), (long) (ms(95) * 1.19));
+        assertThat(histogram.percentileNanos(0.99)).isBetween(ms(99), (long) (ms(99) * 1.19));
+    }
+
+    @Test
+    public void bucketBoundaries() {
+        // 각 bucket의 상한은 다음 bucket의 시작이다.
+        for (int bucket = 0; bucket < 103; bucket++) {
+            long upper = LatencyHistogram.upperBoundNanos(bucket);
+            assertThat(LatencyHistogram.bucketOf(upper - 1)).isEqualTo(bucket);
+            assertThat(LatencyHistogram.bucketOf(upper)).isEqualTo(bucket + 1);
+        }
+        assertThat(LatencyHistogram.bucketOf(0)).isEqualTo(0);
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(104);
+    }
+
+    @Test
+    public void cumulativeCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_500);        // le 2^11 ns
+        histogram.record(3_000);        // le 2^12 ns
+        histogram.record(Long.MAX_VALUE);
+
+        long[] cumulative = histogram.cumulativeCountsAtPowersOfTwo();
+        assertThat(cumulative[0]).isEqualTo(1);
+        assertThat(cumulative[1]).isEqualTo(2);
+        assertThat(cumulative[cumulative.length - 2]).isEqualTo(2);
+        assertThat(cumulative[cumulative.length - 1]).isEqualTo(3);  // +Inf
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
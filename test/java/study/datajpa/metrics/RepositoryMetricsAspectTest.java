@@ -0,0 +1,84 @@
+package study.datajpa.metrics;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 지표는 컨텍스트 전체에서 누적되므로 호출 전후의 차이로 검증한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class RepositoryMetricsAspectTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void recordCallsAndRows() throws Exception {
+        // given
+        String username = "metrics-" + UUID.randomUUID();
+        memberRepository.save(new Member(username, 10));
+        memberRepository.save(new Member(username, 20));
+        Map<String, Object> findBefore = method("findByUsername");
+        Map<String, Object> countBefore = method("count");
+
+        // when
+        assertThat(memberRepository.findByUsername(username)).hasSize(2);
+        assertThat(memberRepository.count()).isPositive();
+
+        // then - 조회는 반환한 row 수, count 같은 숫자 결과는 row 0
+        Map<String, Object> findAfter = method("findByUsername");
+        assertThat(delta(findBefore, findAfter, "calls")).isEqualTo(1);
+        assertThat(delta(findBefore, findAfter, "rows")).isEqualTo(2);
+        Map<String, Object> countAfter = method("count");
+        assertThat(delta(countBefore, countAfter, "calls")).isEqualTo(1);
+        assertThat(delta(countBefore, countAfter, "rows")).isZero();
+
+        String prometheus = mockMvc.perform(get("/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(prometheus).contains("datajpa_repository_latency_seconds_count{repository=\"MemberRepository\",method=\"findByUsername\"}");
+    }
+
+    @Test
+    public void scalarResultsAreNotRows() {
+        assertThat(RepositoryMetricsAspect.rowCount(42L)).isZero();
+        assertThat(RepositoryMetricsAspect.rowCount(3)).isZero();
+        assertThat(RepositoryMetricsAspect.rowCount(true)).isZero();
+        assertThat(RepositoryMetricsAspect.rowCount(new Member("entity"))).isEqualTo(1);
+        assertThat(RepositoryMetricsAspect.rowCount(List.of(1, 2, 3))).isEqualTo(3);
+    }
+
+    // 아직 호출된 적 없으면 빈 Map
+    private Map<String, Object> method(String method) throws Exception {
+        String json = mockMvc.perform(get("/metrics/repositories"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Map<String, Object>> all = objectMapper.readValue(json, new TypeReference<List<Map<String, Object>>>() {
+        });
+        return all.stream()
+                .filter(each -> "MemberRepository".equals(each.get("repository")) && method.equals(each.get("method")))
+                .findFirst()
+                .orElse(Map.of());
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String key) {
+        return ((Number) after.getOrDefault(key, 0)).longValue() - ((Number) before.getOrDefault(key, 0)).longValue();
+    }
+}
@@ -0,0 +1,70 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class MemberAsyncRepositoryTest {
+
+    @Autowired MemberAsyncRepository memberAsyncRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+
+    @Test
+    public void fanOut() {
+        Team team = teamRepository.save(new Team("asyncTeam"));
+        memberRepository.save(new Member("async1", 10, team));
+        memberRepository.save(new Member("async2", 20, team));
+
+        CompletableFuture<List<Member>> byUsername = memberAsyncRepository.findByUsername("async1");
+        CompletableFuture<Page<MemberDto>> teamMembers = memberAsyncRepository.findMemberDtoPageByTeamId(team.getId(), PageRequest.of(0, 10));
+
+        assertThat(byUsername.join()).extracting("username").containsExactly("async1");
+        assertThat(teamMembers.join().getTotalElements()).isEqualTo(2);
+        assertThat(teamMembers.join().getContent()).extracting("teamName").containsOnly("asyncTeam");
+    }
+
+    @Test
+    public void admissionControl() throws Exception {
+        try (AdmissionControlledExecutor executor = new AdmissionControlledExecutor("test", 2, 1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger maxRunning = new AtomicInteger();
+            Runnable blocking = () -> {
+                maxRunning.accumulateAndGet(executor.getRunning(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+
+            CompletableFuture<?>[] admitted = new CompletableFuture<?>[3];
+            for (int i = 0; i < 3; i++) {
+                admitted[i] = CompletableFuture.runAsync(blocking, executor);  // 실행 2 + 대기 1
+            }
+            // 실행 2, 대기 1이 꽉 찼으므로 4번째는 기다리지 않고 바로 거절
+            assertThatThrownBy(() -> CompletableFuture.runAsync(blocking, executor))
+                    .isInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            CompletableFuture.allOf(admitted).get(5, TimeUnit.SECONDS);
+            assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+            assertThat(executor.snapshot()).containsEntry("rejected", 1L);
+        }
+    }
+}
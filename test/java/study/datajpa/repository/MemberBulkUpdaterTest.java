@@ -0,0 +1,102 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.BulkUpdateProgress;
+import study.datajpa.entity.BulkUpdateJob;
+import study.datajpa.entity.BulkUpdateSlice;
+import study.datajpa.entity.Member;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * slice는 각자 트랜잭션으로 커밋되므로 @Transactional 없이 실행한다.
+ */
+@SpringBootTest
+class MemberBulkUpdaterTest {
+
+    @Autowired MemberBulkUpdater bulkUpdater;
+    @Autowired MemberRepository memberRepository;
+    @Autowired BulkUpdateSliceRepository sliceRepository;
+    @Autowired BulkUpdateJobRepository jobRepository;
+    @Autowired DatabaseClock clock;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void runInSlices() throws Exception {
+        // given
+        List<Member> members = saveMembers(1000, 5);
+
+        // when
+        BulkUpdateJob job = bulkUpdater.createAgePlusJob(1000, 20);
+        BulkUpdateProgress progress = bulkUpdater.run(job.getId(), 2).get(30, TimeUnit.SECONDS);
+
+        // then
+        assertThat(progress.getStatus()).isEqualTo(BulkUpdateJob.Status.COMPLETED);
+        assertThat(progress.getDoneSlices()).isEqualTo(job.getTotalSlices());
+        for (Member member : members) {
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(1001);
+        }
+    }
+
+    @Test
+    public void resumeFromLastFinishedSlice() throws Exception {
+        // given
+        List<Member> members = saveMembers(2000, 5);
+        BulkUpdateJob job = bulkUpdater.createAgePlusJob(2000, 2);
+
+        // 마지막 회원이 속한 slice는 끝난 것으로 기록된 상태에서 죽었다고 가정
+        int finished = (int) ((members.get(4).getId() - job.getMinId()) / job.getSliceSize());
+        sliceRepository.save(new BulkUpdateSlice(job.getId(), finished, 0));
+
+        // when
+        BulkUpdateProgress progress = bulkUpdater.run(job.getId(), 3).get(30, TimeUnit.SECONDS);
+
+        // then : 끝난 slice는 다시 실행하지 않는다.
+        assertThat(progress.getStatus()).isEqualTo(BulkUpdateJob.Status.COMPLETED);
+        for (Member member : members) {
+            boolean skipped = member.getId() >= job.sliceFromId(finished) && member.getId() < job.sliceToId(finished);
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(skipped ? 2000 : 2001);
+        }
+    }
+
+    @Test
+    public void runOnlyJobsNotOwnedByLiveNode() throws Exception {
+        // given - 다른 노드가 가져가서 실행 중 (heartbeat가 살아있다)
+        List<Member> members = saveMembers(3000, 3);
+        BulkUpdateJob job = bulkUpdater.createAgePlusJob(3000, 10);
+        LocalDateTime now = clock.now();
+        transactionTemplate.executeWithoutResult(status ->
+                jobRepository.claim(job.getId(), "other-node", BulkUpdateJob.Status.RUNNING, now, now.plusSeconds(1)));
+
+        // when & then - 가져가지 못하므로 실행하지 않는다. (실패로 바꾸지도 않는다)
+        BulkUpdateProgress skipped = bulkUpdater.run(job.getId(), 2).get(30, TimeUnit.SECONDS);
+        assertThat(skipped.getStatus()).isEqualTo(BulkUpdateJob.Status.RUNNING);
+        assertThat(skipped.getDoneSlices()).isZero();
+        assertThat(jobRepository.findById(job.getId()).get().getOwner()).isEqualTo("other-node");
+
+        // when & then - 그 노드의 heartbeat가 끊기면 가져가서 끝낸다.
+        transactionTemplate.executeWithoutResult(status ->
+                jobRepository.heartbeat(job.getId(), "other-node", BulkUpdateJob.Status.RUNNING, now.minusMinutes(10)));
+        BulkUpdateProgress resumed = bulkUpdater.run(job.getId(), 2).get(30, TimeUnit.SECONDS);
+        assertThat(resumed.getStatus()).isEqualTo(BulkUpdateJob.Status.COMPLETED);
+        for (Member member : members) {
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(3001);
+        }
+    }
+
+    private List<Member> saveMembers(int age, int count) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add(memberRepository.save(new Member("bulk" + age + "_" + i, age)));
+        }
+        return members;
+    }
+}
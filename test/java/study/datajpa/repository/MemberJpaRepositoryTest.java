@@ -114,6 +114,25 @@ class MemberJpaRepositoryTest {
         assertThat(totalCount).isEqualTo(5);
     }
 
+    @Test
+    public void keysetPaging() {
+        // given
+        memberJpaRepository.save(new Member("member1", 200));
+        memberJpaRepository.save(new Member("member2", 200));
+        memberJpaRepository.save(new Member("member3", 200));
+        memberJpaRepository.save(new Member("member4", 200));
+        memberJpaRepository.save(new Member("member5", 200));
+
+        // when
+        List<Member> page1 = memberJpaRepository.findByPageKeyset(200, null, null, 3);
+        Member last = page1.get(page1.size() - 1);
+        List<Member> page2 = memberJpaRepository.findByPageKeyset(200, last.getUsername(), last.getId(), 3);
+
+        // then
+        assertThat(page1).extracting("username").containsExactly("member5", "member4", "member3");
+        assertThat(page2).extracting("username").containsExactly("member2", "member1");
+    }
+
     @Test
     public void bulkUpdate() {
 
@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * partition마다 새 EntityManager로 조회하므로 커밋된 데이터만 보인다. (@Transactional 없이 실행)
+ */
+@SpringBootTest
+class MemberPartitionedScannerTest {
+
+    @Autowired MemberPartitionedScanner scanner;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void scanMatchesSingleThreadedResult() {
+        // when
+        long count = scanner.scan(Collectors.counting());
+        long ageSum = scanner.scan(Collectors.summingLong(Member::getAge));
+
+        // then
+        List<Member> all = memberRepository.findAll();
+        assertThat(count).isEqualTo(all.size());
+        assertThat(ageSum).isEqualTo(all.stream().mapToLong(Member::getAge).sum());
+    }
+}
@@ -0,0 +1,129 @@
+package study.datajpa.repository;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.cache.LocalRegionFactory;
+import study.datajpa.cache.LocalStorageAccess;
+import study.datajpa.entity.Member;
+import study.datajpa.sql.SqlStatementRecorder;
+import study.datajpa.sql.StatementScope;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 2차 캐시, 쿼리 캐시는 트랜잭션이 커밋되어야 채워지므로 @Transactional 없이 테스트한다.
+ */
+@SpringBootTest
+class MemberQueryCacheTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    public void usernameLookupIsCached() {
+        // given
+        String username = "cached-" + UUID.randomUUID();
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(new Member(username, 10)));
+
+        // when
+        List<Member> first = memberRepository.findByUsername(username);    // DB 조회 후 쿼리 캐시에 저장
+        long hitsBefore = hits("query.member-by-username");
+        List<Member> second = memberRepository.findByUsername(username);   // 쿼리 캐시 hit -> 엔티티는 2차 캐시 hit
+
+        // then
+        assertThat(first).extracting("username").containsExactly(username);
+        assertThat(second.get(0).getId()).isEqualTo(first.get(0).getId());
+        assertThat(hits("query.member-by-username")).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void writeInvalidatesQueryCache() {
+        // given
+        String username = "cached-" + UUID.randomUUID();
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(new Member(username, 10)));
+        assertThat(memberRepository.findByUsername(username)).hasSize(1);
+
+        // when - 같은 username 회원 추가 (member 테이블 쓰기 -> 쿼리 캐시 무효화)
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(new Member(username, 20)));
+
+        // then
+        assertThat(memberRepository.findByUsername(username)).hasSize(2);
+    }
+
+    @Test
+    public void findByIdInNewSessionIsSecondLevelCacheHit() {
+        // given
+        Long id = transactionTemplate.execute(status -> memberRepository.save(new Member("l2-" + UUID.randomUUID(), 10)).getId());
+        emf.getCache().evict(Member.class, id);
+        memberRepository.findById(id);  // DB 조회 후 member region에 저장
+
+        // when - 트랜잭션 밖의 findById는 호출마다 새 EntityManager(세션)
+        long hitsBefore = hits("member");
+        try (StatementScope scope = SqlStatementRecorder.start("l2 hit")) {
+            assertThat(memberRepository.findById(id)).isPresent();
+
+            // then
+            assertThat(scope.count()).isZero();
+        }
+        assertThat(hits("member")).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void bulkUpdateEvictsMemberRegion() {
+        // given
+        Long id = transactionTemplate.execute(status -> memberRepository.save(new Member("l2-" + UUID.randomUUID(), 10)).getId());
+        memberRepository.findById(id);
+        assertThat(emf.getCache().contains(Member.class, id)).isTrue();
+
+        // when - JPQL 벌크 연산은 어떤 row가 바뀌었는지 모르므로 하이버네이트가 member region 전체를 비운다.
+        transactionTemplate.executeWithoutResult(status -> memberRepository.bulkAgePlus(1_000_000));
+
+        // then
+        assertThat(emf.getCache().contains(Member.class, id)).isFalse();
+        try (StatementScope scope = SqlStatementRecorder.start("after bulk")) {
+            assertThat(memberRepository.findById(id)).isPresent();
+            assertThat(scope.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void bulkUpdateTargetedEvictsOnlyUpdatedMembers() {
+        // given - 두 회원 모두 member region에 있다.
+        Long untouched = transactionTemplate.execute(status -> memberRepository.save(new Member("l2-" + UUID.randomUUID(), 710_000)).getId());
+        Long updated = transactionTemplate.execute(status -> memberRepository.save(new Member("l2-" + UUID.randomUUID(), 710_020)).getId());
+        memberRepository.findById(untouched);
+        memberRepository.findById(updated);
+        assertThat(emf.getCache().contains(Member.class, untouched)).isTrue();
+        assertThat(emf.getCache().contains(Member.class, updated)).isTrue();
+
+        // when
+        assertThat(memberRepository.bulkAgePlusTargeted(710_010)).isEqualTo(1);
+
+        // then - 바뀐 회원만 region에서 빠지고, 나머지는 그대로 2차 캐시에서 읽는다.
+        assertThat(emf.getCache().contains(Member.class, updated)).isFalse();
+        assertThat(emf.getCache().contains(Member.class, untouched)).isTrue();
+        try (StatementScope scope = SqlStatementRecorder.start("after targeted bulk")) {
+            assertThat(memberRepository.findById(untouched).get().getAge()).isEqualTo(710_000);
+            assertThat(scope.count()).isZero();
+        }
+        assertThat(memberRepository.findById(updated).get().getAge()).isEqualTo(710_021);
+    }
+
+    private long hits(String regionName) {
+        LocalRegionFactory regionFactory = (LocalRegionFactory) emf.unwrap(SessionFactoryImplementor.class)
+                .getCache().getRegionFactory();
+        return regionFactory.getRegions().stream()
+                .filter(region -> region.getRegionName().equals(regionName))
+                .map(LocalStorageAccess::snapshot)
+                .mapToLong(snapshot -> (Long) snapshot.get("hits"))
+                .sum();
+    }
+}
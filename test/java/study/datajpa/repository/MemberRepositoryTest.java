@@ -10,13 +10,20 @@ import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.sql.SqlStatementRecorder;
+import study.datajpa.sql.StatementScope;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -231,6 +238,103 @@ class MemberRepositoryTest {
         assertThat(page.hasNext()).isTrue();
     }
 
+    @Test
+    public void pagingWithCachedCount() {
+        // given
+        memberRepository.save(new Member("member1", 300));
+        memberRepository.save(new Member("member2", 300));
+        memberRepository.save(new Member("member3", 300));
+
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "username"));
+
+        // when
+        Page<Member> page = memberRepository.findByAgeWithCachedCount(300, pageRequest);
+        Page<Member> cachedPage = memberRepository.findByAgeWithCachedCount(300, pageRequest); // count 쿼리 X
+
+        memberRepository.save(new Member("member4", 300)); // 쓰기가 일어나면 count 캐시가 무효화된다.
+        Page<Member> afterSave = memberRepository.findByAgeWithCachedCount(300, pageRequest);
+
+        // then
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(cachedPage.getTotalElements()).isEqualTo(3);
+        assertThat(afterSave.getTotalElements()).isEqualTo(4);
+        assertThat(afterSave.getContent()).extracting("username").containsExactly("member4", "member3");
+    }
+
+    @Test
+    public void keysetPaging() {
+        // given
+        memberRepository.save(new Member("member1", 200));
+        memberRepository.save(new Member("member2", 200));
+        memberRepository.save(new Member("member2", 200)); // 같은 username은 id로 순서가 정해진다.
+        memberRepository.save(new Member("member4", 200));
+        memberRepository.save(new Member("member5", 200));
+        memberRepository.save(new Member(null, 200));      // username 정렬에서는 어느 페이지에도 나오지 않는다.
+
+        MemberCursor first = MemberCursor.first(MemberCursor.SortKey.USERNAME, Sort.Direction.DESC);
+
+        // when
+        KeysetSlice<Member> page1 = memberRepository.findByAgeKeyset(200, first, 3);
+        KeysetSlice<Member> page2 = memberRepository.findByAgeKeyset(200, MemberCursor.decode(page1.getNext()), 3);
+
+        // then
+        assertThat(page1.getContent()).extracting("username").containsExactly("member5", "member4", "member2");
+        assertThat(page1.isHasNext()).isTrue();
+        assertThat(page2.getContent()).extracting("username").containsExactly("member2", "member1");
+        assertThat(page2.isHasNext()).isFalse();
+        assertThat(page2.getNext()).isNull();
+    }
+
+    @Test
+    public void keysetCursorRejectsUnknownDirection() {
+        // 정렬키|방향|id|값 포맷에서 방향만 변조
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("a|x|1|10".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> MemberCursor.decode(tampered)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void saveAllBatched() {
+        // given
+        Team team = teamRepository.save(new Team("teamA"));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("batch" + i, 400);
+            member.setTeam(team);
+            members.add(member);
+        }
+
+        // when
+        int saved = memberRepository.saveAllBatched(members, 3); // 3건씩 flush + clear
+
+        // then
+        List<Member> result = memberRepository.findByAgeWithCachedCount(400, PageRequest.of(0, 20)).getContent();
+        assertThat(saved).isEqualTo(10);
+        assertThat(result).hasSize(10);
+        assertThat(em.contains(members.get(0))).isFalse(); // clear 되어서 준영속 상태
+        assertThat(result.get(0).getTeam().getId()).isEqualTo(team.getId());
+    }
+
+    @Test
+    public void saveAllBatchedKeepsSynchronizationsBounded() {
+        // 영속성 컨텍스트뿐 아니라 트랜잭션 synchronization도 저장 건수만큼 쌓이면 안 된다.
+        memberRepository.saveAllBatched(batchMembers("syncA", 3), 3);
+        int afterFirstBatch = TransactionSynchronizationManager.getSynchronizations().size();
+
+        memberRepository.saveAllBatched(batchMembers("syncB", 200), 50);
+
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(afterFirstBatch);
+    }
+
+    private static List<Member> batchMembers(String prefix, int count) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add(new Member(prefix + i, 401));
+        }
+        return members;
+    }
+
     @Test
     public void bulkUpdate() {
 
@@ -386,4 +490,109 @@ class MemberRepositoryTest {
     public void callCustom() {
         List<Member> result = memberRepository.findMemberCustom();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void statementCount() {
+        // given
+        Team teamA = teamRepository.save(new Team("teamA"));
+        Team teamB = teamRepository.save(new Team("teamB"));
+        Member member1 = memberRepository.save(new Member("member1", 10, teamA));
+        Member member2 = memberRepository.save(new Member("member2", 10, teamB));
+        em.flush();
+        em.clear();
+
+        // when & then
+        // 지연 로딩 : 회원 조회 + 팀 조회가 회원 수만큼 나간다. (N + 1)
+        try (StatementScope scope = SqlStatementRecorder.start("lazy")) {
+            memberRepository.findById(member1.getId()).get().getTeam().getName();
+            memberRepository.findById(member2.getId()).get().getTeam().getName();
+            assertThat(scope.count()).isEqualTo(4);
+        }
+        em.clear();
+
+        // fetch join : 쿼리 한 번
+        try (StatementScope scope = SqlStatementRecorder.start("fetch join")) {
+            List<Member> members = memberRepository.findMemberFetchJoin();
+            members.stream()
+                    .filter(member -> member.getTeam() != null)
+                    .forEach(member -> member.getTeam().getName());
+            assertThat(scope.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void batchFetchTeam() {
+        // given
+        List<Long> teamIds = new ArrayList<>();
+        for (String name : new String[]{"batchFetchA", "batchFetchB", "batchFetchC"}) {
+            Team team = teamRepository.save(new Team(name));
+            memberRepository.save(new Member(name + "_1", 10, team));
+            memberRepository.save(new Member(name + "_2", 20, team));
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // when - @Rollback(false)라서 다른 테스트가 남긴 회원도 있으므로 이 테스트에서 만든 팀의 회원만 조회한다.
+        try (StatementScope scope = SqlStatementRecorder.start("batch fetch")) {
+            List<Member> members = em.createQuery("select m from Member m where m.team.id in :teamIds", Member.class)
+                    .setParameter("teamIds", teamIds)
+                    .getResultList();
+            members.forEach(member -> member.getTeam().getName());
+
+            // then : 회원 조회 1 + 팀 3개를 in 절로 한 번 (지연 로딩이지만 N + 1이 아니다)
+            assertThat(members).hasSize(6);
+            assertThat(scope.count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void fetchPlan() {
+        // given
+        Team team = teamRepository.save(new Team("planTeam"));
+        memberRepository.save(new Member("plan1", 10, team));
+        em.flush();
+        em.clear();
+        PageRequest pageRequest = PageRequest.of(0, 2000, Sort.by("id"));
+
+        // when
+        Member lazy = findPlanMember(memberRepository.findAllWithPlan(MemberFetchPlan.parse(null), pageRequest));
+        em.clear();
+        Member expanded = findPlanMember(memberRepository.findAllWithPlan(MemberFetchPlan.parse(" team, team"), pageRequest));
+
+        // then
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        assertThat(util.isLoaded(lazy.getTeam())).isFalse();
+        assertThat(util.isLoaded(expanded.getTeam())).isTrue();
+        assertThat(MemberFetchPlan.parse("team,team")).isSameAs(MemberFetchPlan.parse("team"));
+        assertThatThrownBy(() -> MemberFetchPlan.parse("team.members"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Member findPlanMember(Page<Member> page) {
+        return page.getContent().stream()
+                .filter(member -> member.getUsername().equals("plan1"))
+                .findFirst().get();
+    }
+
+    @Test
+    public void bulkUpdateTargeted() {
+        // given - 다른 테스트의 회원이 대상에 섞이지 않도록 아무도 쓰지 않는 나이대를 쓴다.
+        Member member1 = memberRepository.save(new Member("target1", 700_000));
+        Member member2 = memberRepository.save(new Member("target2", 700_020));
+        em.flush();
+        member1.setUsername("target1-changed");  // 아직 flush 안된 변경
+
+        // when
+        int resultCount = memberRepository.bulkAgePlusTargeted(700_010);
+
+        // then : 영속성 컨텍스트를 비우지 않으므로 같은 인스턴스가 그대로 관리되고, 변경된 회원만 refresh 된다.
+        assertThat(resultCount).isEqualTo(1);
+        assertThat(em.contains(member1)).isTrue();
+        assertThat(em.contains(member2)).isTrue();
+        assertThat(member1.getUsername()).isEqualTo("target1-changed");
+        assertThat(member1.getAge()).isEqualTo(700_000);
+        assertThat(member2.getAge()).isEqualTo(700_021);
+        assertThat(memberRepository.findById(member2.getId()).get()).isSameAs(member2);
+    }
+}
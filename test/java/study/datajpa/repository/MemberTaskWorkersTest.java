@@ -0,0 +1,89 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.MemberTask;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "datajpa.member-task.idle-poll-ms=20")
+class MemberTaskWorkersTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberTaskRepository taskRepository;
+    @Autowired MemberTaskWorkers workers;
+
+    @AfterEach
+    public void clear() {
+        taskRepository.deleteAllInBatch();  // 다른 테스트가 30초 lease로 가져간 작업이 남지 않도록
+    }
+
+    @Test
+    public void workersShareTasksWithoutDuplicates() throws Exception {
+        taskRepository.enqueueAll();
+        long total = taskRepository.count();
+
+        Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+        try (MemberTaskWorkers.Running running = workers.start(4, member ->
+                processed.computeIfAbsent(member.getId(), id -> new AtomicInteger()).incrementAndGet())) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (taskRepository.countByStatus(MemberTask.Status.DONE) < total && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+
+        assertThat(taskRepository.countByStatus(MemberTask.Status.DONE)).isEqualTo(total);
+        assertThat(processed).hasSize((int) memberRepository.count());
+        assertThat(processed.values()).allMatch(count -> count.get() == 1);   // 작업 하나를 두 작업자가 처리하지 않는다.
+    }
+
+    @Test
+    public void staleClaimIsRecovered() throws Exception {
+        taskRepository.enqueueAll();
+
+        // 가져간 뒤 lease 안에 끝내지도 연장하지도 못한 노드
+        List<Long> dead = taskRepository.claim("dead-node", 5, Duration.ofMillis(1), 5);
+        assertThat(dead).hasSize(5);
+        Thread.sleep(10);
+
+        List<Long> recovered = taskRepository.claim("live-node", 1000, Duration.ofSeconds(30), 5);
+        assertThat(recovered).containsAll(dead);
+        assertThat(taskRepository.complete("dead-node", dead.get(0))).isFalse();  // 뒤늦은 완료는 반영되지 않는다.
+        assertThat(taskRepository.complete("live-node", dead.get(0))).isTrue();
+    }
+
+    @Test
+    public void claimedTaskIsSkipped() {
+        taskRepository.enqueueAll();
+
+        List<Long> first = taskRepository.claim("node-a", 10, Duration.ofSeconds(30), 5);
+        List<Long> second = taskRepository.claim("node-b", 10, Duration.ofSeconds(30), 5);
+
+        assertThat(second).doesNotContainAnyElementsOf(first);
+    }
+
+    @Test
+    public void onlyTakenOverTasksAreLost() throws Exception {
+        taskRepository.enqueueAll();
+
+        List<Long> held = taskRepository.claim("slow-node", 3, Duration.ofMillis(1), 5);
+        assertThat(held).hasSize(3);
+        assertThat(taskRepository.complete("slow-node", held.get(0))).isTrue();  // 끝냈지만 아직 held에 남아있는 작업
+        Thread.sleep(10);
+        List<Long> taken = taskRepository.claim("live-node", 1000, Duration.ofSeconds(30), 5);
+
+        // 연장은 하나도 안 되지만, 잃은 작업은 다른 노드가 가져간 두 개뿐이다.
+        assertThat(taskRepository.renew("slow-node", held, Duration.ofSeconds(30))).isZero();
+        assertThat(taken).containsAll(held.subList(1, 3));
+        assertThat(taskRepository.countLost("slow-node", held)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import study.datajpa.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = "datajpa.optimistic-retry.max-attempts=100")   // 한 회원에 4개 스레드가 몰리므로 넉넉하게
+class OptimisticLockRetryTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired OptimisticLockRetry retry;
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws Exception {
+        Long id = memberRepository.save(new Member("optimistic1", 0)).getId();
+        int threads = 4;
+        int perThread = 10;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    retry.execute(status -> {
+                        Member member = memberRepository.findById(id).get();
+                        member.setAge(member.getAge() + 1);
+                        return null;
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Member member = memberRepository.findById(id).get();
+        assertThat(member.getAge()).isEqualTo(threads * perThread);    // 충돌한 변경도 재시도로 전부 반영
+        assertThat(member.getVersion()).isEqualTo(threads * perThread);
+    }
+
+    @Test
+    public void staleCopyIsRejected() {
+        Member stale = memberRepository.save(new Member("optimistic2", 10));
+
+        // 벌크 연산도 version을 올린다.
+        memberRepository.bulkAgePlusInRange(0, stale.getId(), stale.getId() + 1);
+        assertThat(memberRepository.findById(stale.getId()).get().getVersion()).isEqualTo(stale.getVersion() + 1);
+
+        stale.setAge(50);
+        assertThatThrownBy(() -> memberRepository.save(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    public void requiresOwnTransaction() {
+        assertThatThrownBy(() -> retry.execute(outer -> retry.execute(inner -> null)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
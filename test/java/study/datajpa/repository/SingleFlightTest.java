@@ -0,0 +1,124 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    public void concurrentRequestsShareOneLoad() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", 0, 0, 100, Runnable::run);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // 첫 요청이 조회 중인 상태에서
+            Future<String> first = executor.submit(() -> flight.get(1L, key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "member" + key;
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+
+            // 같은 key로 7개가 더 들어오면
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                others.add(executor.submit(() -> flight.get(1L, key -> "other" + loads.incrementAndGet())));
+            }
+            while (flight.topKeys(1).get(1L).getCollapsed() < 7) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // 조회는 한 번이고, 모두 같은 결과를 받는다.
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("member1");
+            for (Future<String> other : others) {
+                assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("member1");
+            }
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(flight.topKeys(1).get(1L).getRequests()).isEqualTo(8);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void staleWhileRevalidate() {
+        SingleFlight<Long, Integer> flight = new SingleFlight<>("test", 0, 60_000, 100, Runnable::run);
+        AtomicInteger version = new AtomicInteger();
+
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        // window 안에서는 이전 값을 바로 돌려주고 갱신은 뒤에서 한다. (여기서는 같은 스레드에서 실행)
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(2);
+        assertThat(flight.topKeys(1).get(1L).getStaleHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void freshValueIsNotRevalidated() {
+        SingleFlight<Long, Integer> flight = new SingleFlight<>("test", 60_000, 120_000, 100, Runnable::run);
+        AtomicInteger version = new AtomicInteger();
+
+        // fresh 기간 안에서는 몇 번을 조회해도 다시 조회하지 않는다.
+        for (int i = 0; i < 10; i++) {
+            assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        }
+        assertThat(version.get()).isEqualTo(1);
+        assertThat(flight.topKeys(1).get(1L).getLoads()).isEqualTo(1);
+    }
+
+    @Test
+    public void revalidateOncePerKey() {
+        List<Runnable> submitted = new ArrayList<>();
+        SingleFlight<Long, Integer> flight = new SingleFlight<>("test", 0, 60_000, 100, submitted::add);
+        AtomicInteger version = new AtomicInteger();
+        flight.get(1L, key -> version.incrementAndGet());
+
+        // 갱신이 끝나기 전에는 stale hit이 몇 번이든 갱신은 하나만 넘긴다.
+        for (int i = 0; i < 10; i++) {
+            assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        }
+        assertThat(submitted).hasSize(1);
+
+        submitted.get(0).run();
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectedRevalidationServesStaleValue() {
+        AtomicInteger rejected = new AtomicInteger();
+        SingleFlight<Long, Integer> flight = new SingleFlight<>("test", 0, 60_000, 100, task -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("full");
+        });
+        AtomicInteger version = new AtomicInteger();
+        flight.get(1L, key -> version.incrementAndGet());
+
+        // revalidator가 꽉 차도 이전 값은 돌려주고, 다음 요청에서 다시 갱신을 시도한다.
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        assertThat(flight.get(1L, key -> version.incrementAndGet())).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
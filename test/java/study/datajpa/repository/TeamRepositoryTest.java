@@ -0,0 +1,49 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.sql.SqlStatementRecorder;
+import study.datajpa.sql.StatementScope;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class TeamRepositoryTest {
+
+    @Autowired TeamRepository teamRepository;
+    @Autowired MemberRepository memberRepository;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void findTeamsWithMembers() {
+        // given
+        for (String name : new String[]{"pageA", "pageB", "pageC"}) {
+            Team team = teamRepository.save(new Team(name));
+            memberRepository.save(new Member(name + "_1", 10, team));
+            memberRepository.save(new Member(name + "_2", 20, team));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        try (StatementScope scope = SqlStatementRecorder.start("teams with members")) {
+            Page<Team> page = teamRepository.findTeamsWithMembers(PageRequest.of(0, 2, Sort.by("name")), 1);
+
+            // then : id 페이징 1 + 팀 2개를 batchSize 1로 fetch join 2 + count 1
+            assertThat(page.getContent()).extracting("name").containsExactly("pageA", "pageB");
+            assertThat(page.getContent()).allSatisfy(team -> assertThat(team.getMembers()).hasSize(2));
+            assertThat(scope.count()).isEqualTo(4);
+        }
+    }
+}
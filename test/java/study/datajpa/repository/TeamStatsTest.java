@@ -0,0 +1,71 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * team_stats는 커밋 직전에 갱신되므로 @Transactional(롤백) 대신 TransactionTemplate으로 커밋한다.
+ */
+@SpringBootTest
+class TeamStatsTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamStatsRepository teamStatsRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void maintainedOnWrite() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // 등록
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("statsA");
+            Team teamB = new Team("statsB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("stats1", 5010, teamA);
+            Member member2 = new Member("stats2", 5020, teamA);
+            Member member3 = new Member("stats3", 5030, teamA);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            return new Long[]{teamA.getId(), teamB.getId(), member1.getId(), member3.getId()};
+        });
+        assertStats(ids[0], 3, 5010, 5030, 15060);
+        assertStats(ids[1], 0, null, null, 0);
+
+        // 팀 이동 (변경감지)
+        tx.executeWithoutResult(status -> em.find(Member.class, ids[2]).changeTeam(em.find(Team.class, ids[1])));
+        assertStats(ids[0], 2, 5020, 5030, 10050);
+        assertStats(ids[1], 1, 5010, 5010, 5010);
+
+        // 삭제
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, ids[3])));
+        assertStats(ids[0], 1, 5020, 5020, 5020);
+
+        // 벌크 연산
+        memberRepository.bulkAgePlus(5000);
+        assertStats(ids[0], 1, 5021, 5021, 5021);
+        assertStats(ids[1], 1, 5011, 5011, 5011);
+    }
+
+    private void assertStats(Long teamId, long count, Integer min, Integer max, long sum) {
+        TeamStats stats = teamStatsRepository.findById(teamId).get();
+        assertThat(stats.getMemberCount()).isEqualTo(count);
+        assertThat(stats.getMinAge()).isEqualTo(min);
+        assertThat(stats.getMaxAge()).isEqualTo(max);
+        assertThat(stats.getAgeSum()).isEqualTo(sum);
+    }
+}
@@ -0,0 +1,78 @@
+package study.datajpa.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class IndexAdvisorTest {
+
+    @Autowired IndexAdvisor indexAdvisor;
+
+    @Test
+    public void jpqlAccessPattern() {
+        AccessPattern pattern = AccessPattern.fromJpql("findByPage",
+                "select m from Member m where m.age = :age order by m.username desc");
+        assertThat(pattern.getEntityName()).isEqualTo("Member");
+        assertThat(pattern.getEquality()).containsExactly("age");
+        assertThat(pattern.getSort()).containsExactly("username");
+
+        AccessPattern join = AccessPattern.fromJpql("findMemberDtoPageByTeamId",
+                "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t where t.id = :teamId");
+        assertThat(join.getEquality()).containsExactly("team.id");
+
+        // or 조건은 복합 인덱스 하나로 풀 수 없으므로 조건은 보지 않는다.
+        AccessPattern or = AccessPattern.fromJpql("or",
+                "select m from Member m where m.username = :username or m.age = :age");
+        assertThat(or.getEquality()).isEmpty();
+    }
+
+    @Test
+    public void likeIsRangeOnlyWithLiteralPrefix() {
+        assertThat(AccessPattern.fromJpql("prefix",
+                "select m from Member m where m.username like 'member%'").getRange()).containsExactly("username");
+        assertThat(AccessPattern.fromJpql("suffix",
+                "select m from Member m where m.username like '%member'").getRange()).isEmpty();
+        assertThat(AccessPattern.fromJpql("param",
+                "select m from Member m where m.username like :username").getRange()).isEmpty();
+        assertThat(AccessPattern.fromJpql("concat",
+                "select m from Member m where m.username like concat('%', :username)").getRange()).isEmpty();
+    }
+
+    @Test
+    @DirtiesContext // 인덱스를 실제로 만들므로 다른 테스트는 새 컨텍스트(ddl-auto: create로 다시 만든 스키마)에서 실행한다.
+    public void reportAndCreateMissingIndexes() {
+        List<IndexAdvice> advice = indexAdvisor.analyze();
+
+        // 이름 쿼리 - (username, member_id) 인덱스의 앞쪽 컬럼
+        assertThat(find(advice, "username").getStatus()).isEqualTo(IndexAdvice.Status.COVERED);
+        assertThat(find(advice, "username").getSources()).contains("Member.findByUsername", "MemberRepository.findListByUsername");
+        // 동등 조건 컬럼끼리는 순서가 달라도 된다. (age, username, member_id)
+        assertThat(find(advice, "username", "age").getSources()).contains("MemberRepository.findUser");
+        // age 동등 + username 정렬 (age, username, member_id)
+        assertThat(find(advice, "age", "username").getStatus()).isEqualTo(IndexAdvice.Status.COVERED);
+        assertThat(find(advice, "age", "username").getSources()).contains("Member.findByPage");
+
+        List<IndexAdvice> missing = advice.stream()
+                .filter(each -> each.getStatus() == IndexAdvice.Status.MISSING)
+                .collect(Collectors.toList());
+        indexAdvisor.createMissing(missing);
+
+        assertThat(missing).allMatch(each -> each.getStatus() == IndexAdvice.Status.CREATED);
+        assertThat(indexAdvisor.analyze()).allMatch(each -> each.getStatus() == IndexAdvice.Status.COVERED);
+    }
+
+    private static IndexAdvice find(List<IndexAdvice> advice, String... columns) {
+        return advice.stream()
+                .filter(each -> each.getTable().equals("member") && each.getColumns().equals(Arrays.asList(columns)))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no advice for member" + Arrays.toString(columns) + " in " + advice));
+    }
+}
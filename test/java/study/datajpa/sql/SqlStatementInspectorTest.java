@@ -0,0 +1,54 @@
+package study.datajpa.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 트랜잭션 예산을 3으로 두고 fail 모드로 실행한다. (초과하는 순간 SqlBudgetExceededException)
+ */
+@SpringBootTest(properties = {
+        "datajpa.sql-budget.per-transaction=3",
+        "datajpa.sql-budget.action=fail",
+        "datajpa.init-members=false"
+})
+class SqlStatementInspectorTest {
+
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @Test
+    public void requiresNewIsNotCountedInSuspendedTransaction() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        try (StatementScope total = SqlStatementRecorder.start("total")) {
+            outer.executeWithoutResult(status -> {
+                selectOne();
+                // 새 트랜잭션의 3개는 그 트랜잭션의 예산으로만 센다.
+                inner.executeWithoutResult(innerStatus -> {
+                    selectOne();
+                    selectOne();
+                    selectOne();
+                });
+                selectOne();    // 바깥 트랜잭션은 2개 -> 예산 안
+            });
+
+            // 트랜잭션 밖에서 연 구간에는 모두 기록된다.
+            assertThat(total.count()).isEqualTo(5);
+        }
+    }
+
+    private void selectOne() {
+        em.createNativeQuery("select 1").getSingleResult();
+    }
+}